@@ -0,0 +1,43 @@
+package com.ig.devices.benchmark;
+
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.model.Device;
+import com.ig.devices.model.DeviceState;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkDevices {
+
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private BenchmarkDevices() {
+    }
+
+    static List<Device> devices(int count) {
+        var now = Instant.now();
+        var devices = new ArrayList<Device>(count);
+        for (var i = 0; i < count; i++) {
+            var device = new Device();
+            device.setId((long) i);
+            device.setName("name" + i);
+            device.setBrand("brand" + (i % 100));
+            device.setState(STATES[i % STATES.length]);
+            device.setCreatedAt(now);
+            device.setUpdatedAt(now);
+            device.setVersion(0L);
+            devices.add(device);
+        }
+        return devices;
+    }
+
+    static List<DeviceResponse> responses(int count) {
+        var responses = new ArrayList<DeviceResponse>(count);
+        for (var i = 0; i < count; i++) {
+            responses.add(new DeviceResponse((long) i, "name" + i, "brand" + (i % 100), STATES[i % STATES.length], 0L));
+        }
+        return responses;
+    }
+
+}
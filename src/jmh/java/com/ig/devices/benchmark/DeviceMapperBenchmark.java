@@ -0,0 +1,43 @@
+package com.ig.devices.benchmark;
+
+import com.ig.devices.dto.DevicesPageResponse;
+import com.ig.devices.mapper.DeviceMapper;
+import com.ig.devices.mapper.DeviceMapperImpl;
+import com.ig.devices.model.Device;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeviceMapperBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private final DeviceMapper mapper = new DeviceMapperImpl();
+    private List<Device> devices;
+
+    @Setup
+    public void setUp() {
+        devices = BenchmarkDevices.devices(size);
+    }
+
+    @Benchmark
+    public DevicesPageResponse toDevicesPageResponse() {
+        var page = new PageImpl<>(devices, PageRequest.of(0, size), size);
+        return mapper.toDevicesPageResponse(page.map(mapper::toResponse));
+    }
+
+}
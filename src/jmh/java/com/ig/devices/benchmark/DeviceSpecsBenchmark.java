@@ -0,0 +1,72 @@
+package com.ig.devices.benchmark;
+
+import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.model.Device;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.repository.DeviceSpecs;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.jdbc.connections.internal.UserSuppliedConnectionProviderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeviceSpecsBenchmark {
+
+    @Param({"none", "brand", "state", "brandAndState", "text"})
+    private String filter;
+
+    private SessionFactory sessionFactory;
+    private DeviceSearchParams params;
+
+    @Setup
+    public void setUp() {
+        // boots Hibernate without a database, criteria building does not need a connection
+        var registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER, UserSuppliedConnectionProviderImpl.class.getName())
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Device.class)
+                .buildMetadata()
+                .buildSessionFactory();
+
+        params = switch (filter) {
+            case "brand" -> new DeviceSearchParams("brand1", null);
+            case "state" -> new DeviceSearchParams(null, DeviceState.IN_USE);
+            case "brandAndState" -> new DeviceSearchParams("brand1", DeviceState.IN_USE);
+            case "text" -> new DeviceSearchParams(null, null, "name", "ame1");
+            default -> new DeviceSearchParams(null, null);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Predicate fromSearchParams() {
+        var builder = sessionFactory.getCriteriaBuilder();
+        var query = builder.createQuery(Device.class);
+        var root = query.from(Device.class);
+        return DeviceSpecs.fromSearchParams(params).toPredicate(root, query, builder);
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.ig.devices.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ig.devices.dto.DevicesPageResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares JSON and CBOR for a page of devices: serialization and deserialization time, and payload sizes with
+ * and without gzip, reported as the {@code payloadBytes} and {@code gzippedBytes} secondary results of
+ * {@code serialize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private DevicesPageResponse page;
+    private byte[] payload;
+    private int gzippedSize;
+
+    @Setup
+    public void setUp() throws IOException {
+        var builder = "cbor".equals(format) ? Jackson2ObjectMapperBuilder.cbor() : Jackson2ObjectMapperBuilder.json();
+        objectMapper = builder.build();
+        page = new DevicesPageResponse(BenchmarkDevices.responses(size), 0, size, 1, (long) size, false, null);
+        payload = objectMapper.writeValueAsBytes(page);
+        gzippedSize = gzippedSize();
+    }
+
+    @Benchmark
+    public void serialize(PayloadSize sizes) throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), page);
+    }
+
+    @Benchmark
+    public DevicesPageResponse deserialize() throws IOException {
+        return objectMapper.readValue(payload, DevicesPageResponse.class);
+    }
+
+    /**
+     * Reported as is rather than per operation, so the secondary results read as bytes per payload.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        public long payloadBytes;
+        public long gzippedBytes;
+
+        @Setup(Level.Iteration)
+        public void setUp(WireFormatBenchmark benchmark) {
+            payloadBytes = benchmark.payload.length;
+            gzippedBytes = benchmark.gzippedSize;
+        }
+
+    }
+
+    private int gzippedSize() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.ig.devices.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Device reads are cached through the Spring cache abstraction. The backing store is chosen by
+ * {@code spring.cache.type}: a local Caffeine cache by default, any shared cache supported by Spring Boot otherwise.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableCaching
+public class CacheConfig {
+
+    public static final String DEVICES = "devices";
+
+    /**
+     * Defers cache puts and evictions to after commit, so a rolled back update never reaches the cache, and drops
+     * puts of devices the {@link DeviceCacheFence} refuses.
+     */
+    @Bean
+    static BeanPostProcessor transactionAwareCacheManagerPostProcessor(ObjectProvider<DeviceCacheFence> fence) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager cacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy(
+                            new FencedCacheManager(cacheManager, SingletonSupplier.of(fence::getObject)));
+                }
+                return bean;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.cache-invalidation")
+public record CacheInvalidationProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("50ms") Duration batchWindow,
+        @DefaultValue("5s") Duration reconnectDelay,
+        @DefaultValue("5s") Duration fenceWindow
+) {
+}
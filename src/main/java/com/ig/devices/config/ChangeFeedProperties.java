@@ -0,0 +1,14 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.changes")
+public record ChangeFeedProperties(
+        @DefaultValue("10000") int replaySize,
+        @DefaultValue("1000") int subscriberBufferSize,
+        @DefaultValue("15s") Duration heartbeatInterval
+) {
+}
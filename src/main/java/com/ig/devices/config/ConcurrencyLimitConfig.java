@@ -0,0 +1,31 @@
+package com.ig.devices.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "devices.concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    DatabaseConcurrencyLimiter databaseConcurrencyLimiter(ConcurrencyLimitProperties properties,
+                                                          MeterRegistry meterRegistry) {
+        return new DatabaseConcurrencyLimiter(properties, meterRegistry);
+    }
+
+    @Bean
+    FilterRegistrationBean<DatabaseConcurrencyLimitFilter> databaseConcurrencyLimitFilter(
+            DatabaseConcurrencyLimiter limiter, ObjectMapper objectMapper) {
+        var filter = new DatabaseConcurrencyLimitFilter(limiter, objectMapper, Set.of("/devices/changes"));
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/devices", "/devices/*");
+        return registration;
+    }
+
+}
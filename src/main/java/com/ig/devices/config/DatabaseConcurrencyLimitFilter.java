@@ -0,0 +1,92 @@
+package com.ig.devices.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ig.devices.dto.ErrorResponse;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds a {@link DatabaseConcurrencyLimiter} permit for the whole request, including asynchronous
+ * processing such as streamed exports. Rejects with 503 if no permit frees up in time. Excluded paths are
+ * long-lived streams that do not hold a database connection, such as the change feed.
+ */
+public class DatabaseConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final DatabaseConcurrencyLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final Set<String> excludedPaths;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public DatabaseConcurrencyLimitFilter(DatabaseConcurrencyLimiter limiter, ObjectMapper objectMapper,
+                                          Set<String> excludedPaths) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+        this.excludedPaths = excludedPaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return excludedPaths.contains(urlPathHelper.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ErrorResponse(List.of("too many concurrent requests, retry later")));
+            return;
+        }
+
+        var releaseOnReturn = true;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener());
+                releaseOnReturn = false;
+            }
+        } finally {
+            if (releaseOnReturn) {
+                limiter.release();
+            }
+        }
+    }
+
+    private class ReleasingAsyncListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+    }
+
+}
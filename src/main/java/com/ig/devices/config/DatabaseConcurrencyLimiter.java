@@ -0,0 +1,52 @@
+package com.ig.devices.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of requests working against the database at the size of the connection pool.
+ * Excess requests wait in a fair queue, which is cheap with virtual threads, instead of piling up
+ * on the pool itself.
+ */
+public class DatabaseConcurrencyLimiter {
+
+    private final Semaphore semaphore;
+    private final long maxWaitNanos;
+    private final Timer waitTimer;
+
+    public DatabaseConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.semaphore = new Semaphore(properties.permits(), true);
+        this.maxWaitNanos = properties.maxWait().toNanos();
+        this.waitTimer = Timer.builder("devices.db.limiter.wait")
+                .description("Time requests waited for a database permit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("devices.db.limiter.queued", semaphore, Semaphore::getQueueLength)
+                .description("Requests waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("devices.db.limiter.available", semaphore, Semaphore::availablePermits)
+                .description("Free database permits")
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        var start = System.nanoTime();
+        try {
+            return semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+}
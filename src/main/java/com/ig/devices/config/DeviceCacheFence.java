@@ -0,0 +1,50 @@
+package com.ig.devices.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ig.devices.dto.DeviceResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers, for {@code devices.cache-invalidation.fence-window}, the highest version notified per device.
+ * Cache puts of a device below that version are refused, so a read that loaded the device before the change
+ * cannot put the old state back after the notification evicted it, while the changed device itself can be cached.
+ */
+@Component
+public class DeviceCacheFence {
+
+    private final Cache<Long, Long> fences;
+    private final long windowNanos;
+    private volatile long allFencedUntil = System.nanoTime();
+
+    public DeviceCacheFence(CacheInvalidationProperties properties) {
+        this.windowNanos = properties.fenceWindow().toNanos();
+        this.fences = Caffeine.newBuilder()
+                .expireAfterWrite(properties.fenceWindow())
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void fence(long id, long version) {
+        fences.asMap().merge(id, version, Math::max);
+    }
+
+    /**
+     * Refuses all puts for the window, for example after the whole table changed.
+     */
+    public void fenceAll() {
+        allFencedUntil = System.nanoTime() + windowNanos;
+    }
+
+    public boolean admits(Object key, Object value) {
+        if (System.nanoTime() - allFencedUntil < 0) {
+            return false;
+        }
+        if (!(key instanceof Long id) || !(value instanceof DeviceResponse device)) {
+            return true;
+        }
+        var fenced = fences.getIfPresent(id);
+        return fenced == null || device.version() >= fenced;
+    }
+
+}
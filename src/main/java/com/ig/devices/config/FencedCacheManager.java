@@ -0,0 +1,38 @@
+package com.ig.devices.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Wraps the {@value CacheConfig#DEVICES} cache of the target manager into a {@link FencedCache}.
+ */
+class FencedCacheManager implements CacheManager {
+
+    private final CacheManager target;
+    private final Supplier<DeviceCacheFence> fence;
+    private final ConcurrentHashMap<Cache, Cache> fenced = new ConcurrentHashMap<>();
+
+    FencedCacheManager(CacheManager target, Supplier<DeviceCacheFence> fence) {
+        this.target = target;
+        this.fence = fence;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        var cache = target.getCache(name);
+        if (cache == null || !CacheConfig.DEVICES.equals(name)) {
+            return cache;
+        }
+        return fenced.computeIfAbsent(cache, devices -> new FencedCache(devices, fence));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+}
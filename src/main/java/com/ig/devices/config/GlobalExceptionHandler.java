@@ -2,7 +2,13 @@ package com.ig.devices.config;
 
 import com.ig.devices.dto.ErrorResponse;
 import com.ig.devices.exception.DeviceStateValidationException;
+import com.ig.devices.exception.InvalidRequestException;
+import com.ig.devices.exception.PreconditionFailedException;
+import com.ig.devices.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +19,12 @@ import java.util.List;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
         var errors = ex.getBindingResult().getFieldErrors()
@@ -23,9 +35,27 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(DeviceStateValidationException.class)
     public ResponseEntity<ErrorResponse> handleDeviceStateValidationException(DeviceStateValidationException ex) {
+        meterRegistry.counter("devices.state.rejections", "reason", ex.getReason()).increment();
+        return ResponseEntity.badRequest().body(new ErrorResponse(List.of(ex.getMessage())));
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidRequestException(InvalidRequestException ex) {
         return ResponseEntity.badRequest().body(new ErrorResponse(List.of(ex.getMessage())));
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(new ErrorResponse(List.of(ex.getMessage())));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(List.of(ex.getMessage())));
+    }
+
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<Void> handleNotFound(EntityNotFoundException ex) {
         return ResponseEntity.notFound().build();
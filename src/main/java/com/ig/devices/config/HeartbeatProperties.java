@@ -0,0 +1,16 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.heartbeat")
+public record HeartbeatProperties(
+        @DefaultValue("1s") Duration flushInterval,
+        @DefaultValue("100000") int maxPending,
+        @DefaultValue("500") int flushChunkSize,
+        @DefaultValue("1m") Duration lastKnownTtl,
+        @DefaultValue("1000000") int lastKnownMaxSize
+) {
+}
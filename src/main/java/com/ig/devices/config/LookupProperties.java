@@ -0,0 +1,11 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "devices.lookup")
+public record LookupProperties(
+        @DefaultValue("5000") int maxIds,
+        @DefaultValue("1000") int chunkSize
+) {
+}
@@ -0,0 +1,25 @@
+package com.ig.devices.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    @Bean
+    StatementCountingListener statementCountingListener() {
+        return new StatementCountingListener();
+    }
+
+    @Bean
+    FilterRegistrationBean<StatementCountingFilter> statementCountingFilter(MeterRegistry meterRegistry,
+                                                                            MetricsProperties properties) {
+        var filter = new StatementCountingFilter(meterRegistry, properties.statementsWarnThreshold());
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/devices", "/devices/*");
+        return registration;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "devices.metrics")
+public record MetricsProperties(
+        @DefaultValue("20") int statementsWarnThreshold
+) {
+}
@@ -0,0 +1,13 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.read-coalescing")
+public record ReadCoalescingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0ms") Duration window
+) {
+}
@@ -0,0 +1,67 @@
+package com.ig.devices.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes read-only transactions to the replicas listed in {@code devices.read-replicas.urls}, by wrapping the
+ * auto-configured primary data source into a {@link ReadReplicaDataSource}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "devices.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    static BeanPostProcessor readReplicaDataSourcePostProcessor(ObjectProvider<ReadReplicaProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource primary
+                        && !(bean instanceof ReadReplicaDataSource)) {
+                    return new ReadReplicaDataSource(primary, createReplicas(properties.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    ReadYourWritesFilter readYourWritesFilter(ReadReplicaProperties properties) {
+        return new ReadYourWritesFilter(properties.readYourWritesWindow(), properties.pinByRemoteAddress());
+    }
+
+    @Bean
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilterRegistration(ReadYourWritesFilter filter) {
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/devices", "/devices/*");
+        return registration;
+    }
+
+    private static List<DataSource> createReplicas(ReadReplicaProperties properties) {
+        var replicas = new ArrayList<DataSource>(properties.urls().size());
+        for (var url : properties.urls()) {
+            var replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(properties.username())
+                    .password(properties.password())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMaximumPoolSize(properties.maximumPoolSize());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return replicas;
+    }
+
+}
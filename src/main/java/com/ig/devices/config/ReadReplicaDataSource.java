@@ -0,0 +1,110 @@
+package com.ig.devices.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to the replicas, round-robin, and all other connections to the
+ * primary. The physical connection is only fetched on first use, once the transaction has marked it read-only.
+ * Reads of the current thread can be pinned to the primary, for example right after the client wrote.
+ * The pin is carried over to tasks wrapped with {@link #withCurrentPin}.
+ */
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+
+    public ReadReplicaDataSource(DataSource primary, List<DataSource> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("at least one replica is required");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        setTargetDataSource(primary);
+        setReadOnlyDataSource(new RoundRobinDataSource(primary, this.replicas));
+        afterPropertiesSet();
+    }
+
+    public static void pinToPrimary() {
+        PRIMARY_PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PRIMARY_PINNED.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PRIMARY_PINNED.get() != null;
+    }
+
+    /**
+     * Wraps a task handed to another thread, so it runs pinned to the primary if the current thread is.
+     */
+    public static Runnable withCurrentPin(Runnable task) {
+        if (!isPinnedToPrimary()) {
+            return task;
+        }
+        return () -> {
+            var pinned = isPinnedToPrimary();
+            pinToPrimary();
+            try {
+                task.run();
+            } finally {
+                if (!pinned) {
+                    unpin();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws Exception {
+        var closeables = new ArrayList<DataSource>(replicas);
+        closeables.add(primary);
+        for (var dataSource : closeables) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class RoundRobinDataSource extends AbstractDataSource {
+
+        private final DataSource primary;
+        private final List<DataSource> replicas;
+        private final AtomicInteger next = new AtomicInteger();
+
+        RoundRobinDataSource(DataSource primary, List<DataSource> replicas) {
+            this.primary = primary;
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return select().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return select().getConnection(username, password);
+        }
+
+        private DataSource select() {
+            if (isPinnedToPrimary()) {
+                return primary;
+            }
+            return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+        }
+
+    }
+
+}
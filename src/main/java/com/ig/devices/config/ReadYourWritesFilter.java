@@ -0,0 +1,109 @@
+package com.ig.devices.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ig.devices.dto.DeviceChangeEvent;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Pins reads to the primary for a while after a client changed a device, so the client does not read stale data
+ * from a lagging replica.
+ * <p>
+ * Responses to writes carry the {@value #PIN_COOKIE} cookie, which expires with the window; requests presenting it
+ * are pinned by whichever instance serves them. Clients that do not keep cookies can send the
+ * {@value #CLIENT_ID_HEADER} header instead, which is remembered by the instance that handled the write. Remote
+ * addresses are only used to tell clients apart if enabled, which is only safe if they are the real client
+ * addresses, for example resolved from X-Forwarded-For with {@code server.forward-headers-strategy=framework}.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String PIN_COOKIE = "devices-read-primary";
+
+    private static final ThreadLocal<Exchange> CURRENT_EXCHANGE = new ThreadLocal<>();
+
+    private final Duration window;
+    private final boolean pinByRemoteAddress;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(Duration window, boolean pinByRemoteAddress) {
+        this.window = window;
+        this.pinByRemoteAddress = pinByRemoteAddress;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var client = clientOf(request);
+        if (hasPinCookie(request) || (client != null && recentWriters.getIfPresent(client) != null)) {
+            ReadReplicaDataSource.pinToPrimary();
+        }
+        CURRENT_EXCHANGE.set(new Exchange(client, response));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CURRENT_EXCHANGE.remove();
+            ReadReplicaDataSource.unpin();
+        }
+    }
+
+    @EventListener
+    public void onChange(DeviceChangeEvent event) {
+        var exchange = CURRENT_EXCHANGE.get();
+        if (exchange == null) {
+            return;
+        }
+        if (exchange.client != null) {
+            recentWriters.put(exchange.client, Boolean.TRUE);
+        }
+        if (!exchange.cookieSet && !exchange.response.isCommitted()) {
+            var cookie = new Cookie(PIN_COOKIE, "1");
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            exchange.response.addCookie(cookie);
+            exchange.cookieSet = true;
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        var clientId = request.getHeader(CLIENT_ID_HEADER);
+        if (clientId != null) {
+            return clientId;
+        }
+        return pinByRemoteAddress ? request.getRemoteAddr() : null;
+    }
+
+    private static boolean hasPinCookie(HttpServletRequest request) {
+        var cookies = request.getCookies();
+        return cookies != null && Arrays.stream(cookies).anyMatch(cookie -> PIN_COOKIE.equals(cookie.getName()));
+    }
+
+    private static final class Exchange {
+
+        private final String client;
+        private final HttpServletResponse response;
+        private boolean cookieSet;
+
+        Exchange(String client, HttpServletResponse response) {
+            this.client = client;
+            this.response = response;
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.ig.devices.config;
+
+import com.ig.devices.exception.InvalidRequestException;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.search")
+public record SearchProperties(
+        @DefaultValue("100") int defaultPageSize,
+        @DefaultValue("1000") int maxPageSize,
+        @DefaultValue("10s") Duration countCacheTtl,
+        @DefaultValue("10000") long countCacheMaxSize
+) {
+
+    public int resolvePageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested < 1) {
+            throw new InvalidRequestException("size must be greater than 0");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.ig.devices.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many SQL statements each request issued, tagged by endpoint, and logs requests above
+ * a threshold so N+1 query patterns show up. Requests processed asynchronously, such as streamed exports,
+ * are recorded once they complete, including the statements of their asynchronous part.
+ */
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCountingFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public StatementCountingFilter(MeterRegistry meterRegistry, int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var count = StatementCountingListener.startCounting();
+        var recordOnReturn = true;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordingAsyncListener(request, count));
+                recordOnReturn = false;
+            }
+        } finally {
+            StatementCountingListener.stopCounting();
+            if (recordOnReturn) {
+                record(request, count.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int statements) {
+        var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("devices.http.statements")
+                .description("SQL statements issued per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri != null ? uri.toString() : "UNKNOWN")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(statements);
+        if (statements > warnThreshold) {
+            log.warn("{} {} issued {} SQL statements", request.getMethod(), uri, statements);
+        }
+    }
+
+    private class RecordingAsyncListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final AtomicInteger count;
+
+        RecordingAsyncListener(HttpServletRequest request, AtomicInteger count) {
+            this.request = request;
+            this.count = count;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, count.get());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.ig.devices.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements executed through the data source while counting is active on the current thread,
+ * whether issued by Hibernate or a {@code JdbcTemplate}. Picked up by the datasource-micrometer proxy like any
+ * {@link QueryExecutionListener} bean. Tasks wrapped with {@link #withCurrentCount} add to the count of the thread
+ * that submitted them.
+ */
+public class StatementCountingListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        var count = COUNT.get();
+        if (count != null) {
+            count.addAndGet(queryInfoList.size());
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    public static Runnable withCurrentCount(Runnable task) {
+        var count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            var previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    COUNT.set(previous);
+                } else {
+                    COUNT.remove();
+                }
+            }
+        };
+    }
+
+    static AtomicInteger startCounting() {
+        var count = new AtomicInteger();
+        COUNT.set(count);
+        return count;
+    }
+
+    static void stopCounting() {
+        COUNT.remove();
+    }
+
+}
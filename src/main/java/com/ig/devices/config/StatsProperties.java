@@ -0,0 +1,13 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.stats")
+public record StatsProperties(
+        @DefaultValue("1h") Duration reconcileInterval,
+        @DefaultValue("5s") Duration foldInterval
+) {
+}
@@ -0,0 +1,13 @@
+package com.ig.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "devices.sync")
+public record SyncProperties(
+        @DefaultValue("30d") Duration tombstoneRetention,
+        @DefaultValue("1h") Duration tombstonePurgeInterval
+) {
+}
@@ -0,0 +1,20 @@
+package com.ig.devices.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+@Configuration(proxyBeanMethods = false)
+public class TaskExecutionConfig {
+
+    /**
+     * Applied to the application task executor, which also runs asynchronous MVC work such as streamed exports.
+     * Carries the request's primary pin and statement count over, so that work reads from the primary for pinned
+     * clients and its statements are counted for the request.
+     */
+    @Bean
+    TaskDecorator requestStateTaskDecorator() {
+        return task -> ReadReplicaDataSource.withCurrentPin(StatementCountingListener.withCurrentCount(task));
+    }
+
+}
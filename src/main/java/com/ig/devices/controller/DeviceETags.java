@@ -0,0 +1,70 @@
+package com.ig.devices.controller;
+
+import com.ig.devices.exception.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strong entity tags derived from the device version, e.g. {@code "3"}.
+ */
+final class DeviceETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private DeviceETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match.
+     */
+    static boolean matchesAny(String ifNoneMatch, long version) {
+        var expected = of(version);
+        for (var tag : ifNoneMatch.split(",")) {
+            var trimmed = tag.trim();
+            if (trimmed.equals(ANY) || stripWeakPrefix(trimmed).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Versions accepted by an If-Match header, or null if any version is accepted. If-Match uses strong comparison,
+     * so weak tags never match and are left out; a header with only weak tags accepts no version at all.
+     */
+    static List<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        var versions = new ArrayList<Long>();
+        for (var tag : ifMatch.split(",")) {
+            var trimmed = tag.trim();
+            if (trimmed.equals(ANY)) {
+                return null;
+            }
+            if (trimmed.startsWith(WEAK_PREFIX)) {
+                continue;
+            }
+            if (trimmed.length() < 2 || !trimmed.startsWith("\"") || !trimmed.endsWith("\"")) {
+                throw new InvalidRequestException("If-Match must be * or a list of entity tags");
+            }
+            try {
+                versions.add(Long.parseLong(trimmed.substring(1, trimmed.length() - 1)));
+            } catch (NumberFormatException ex) {
+                // not a tag of ours, so it matches no version
+            }
+        }
+        return versions;
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+
+}
@@ -1,9 +1,24 @@
 package com.ig.devices.controller;
 
+import com.ig.devices.dto.DeviceBatchResponse;
 import com.ig.devices.dto.DeviceCreateOrUpdateRequest;
+import com.ig.devices.dto.DeviceExportFormat;
+import com.ig.devices.dto.DeviceHeartbeatRequest;
+import com.ig.devices.dto.DeviceLookupRequest;
+import com.ig.devices.dto.DeviceLookupResponse;
 import com.ig.devices.dto.DevicesPageResponse;
 import com.ig.devices.dto.DeviceResponse;
 import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.dto.DeviceStateTransitionRequest;
+import com.ig.devices.dto.DeviceStateTransitionResponse;
+import com.ig.devices.dto.DeviceStatsResponse;
+import com.ig.devices.dto.DeviceSyncResponse;
+import com.ig.devices.service.DeviceChangeFeed;
+import com.ig.devices.service.DeviceHeartbeatBuffer;
+import com.ig.devices.service.DeviceStatsService;
+import com.ig.devices.service.DeviceSyncService;
+import com.ig.devices.service.DevicesBatchService;
+import com.ig.devices.service.DevicesExportService;
 import com.ig.devices.service.DevicesService;
 import com.ig.devices.validation.DeviceValidationGroups.CreateOrUpdate;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,9 +27,14 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,19 +45,40 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/devices")
 @Tag(name = "Devices", description = "Devices CRUD endpoints")
 public class DevicesController {
 
     private final DevicesService service;
+    private final DevicesExportService exportService;
+    private final DevicesBatchService batchService;
+    private final DeviceStatsService statsService;
+    private final DeviceChangeFeed changeFeed;
+    private final DeviceSyncService syncService;
+    private final DeviceHeartbeatBuffer heartbeatBuffer;
 
-    public DevicesController(DevicesService service) {
+    public DevicesController(DevicesService service, DevicesExportService exportService,
+                             DevicesBatchService batchService, DeviceStatsService statsService,
+                             DeviceChangeFeed changeFeed, DeviceSyncService syncService,
+                             DeviceHeartbeatBuffer heartbeatBuffer) {
         this.service = service;
+        this.exportService = exportService;
+        this.batchService = batchService;
+        this.statsService = statsService;
+        this.changeFeed = changeFeed;
+        this.syncService = syncService;
+        this.heartbeatBuffer = heartbeatBuffer;
     }
 
     @Operation(summary = "Create new device", responses = {
@@ -66,52 +107,175 @@ public class DevicesController {
                 .path("/{id}")
                 .buildAndExpand(createdDevice.id())
                 .toUri();
-        return ResponseEntity.created(location).body(createdDevice);
+        return ResponseEntity.created(location)
+                .eTag(DeviceETags.of(createdDevice.version()))
+                .body(createdDevice);
+    }
+
+    @Operation(summary = "Create many devices at once",
+            description = "Every device is validated on its own; invalid ones are reported and not created",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Per device results",
+                            content = @Content(schema = @Schema(implementation = DeviceBatchResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Batch is too large", content = @Content)
+            })
+    @PostMapping("/batch")
+    public ResponseEntity<DeviceBatchResponse> createBatch(@RequestBody List<DeviceCreateOrUpdateRequest> requests) {
+        return ResponseEntity.ok(batchService.createAll(requests));
+    }
+
+    @Operation(summary = "Move many devices to another state at once",
+            description = "Devices are selected either by ids or by a search filter and updated in one transaction")
+    @PostMapping("/state-transitions")
+    public ResponseEntity<DeviceStateTransitionResponse> transitionState(
+            @RequestBody @Valid DeviceStateTransitionRequest request) {
+        return ResponseEntity.ok(batchService.transitionState(request));
+    }
+
+    @Operation(summary = "Report the current state of a device",
+            description = "Reports are buffered and written in batches, so the state is updated with a short delay. "
+                    + "Reports that do not change the state are not written at all",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Report accepted"),
+                    @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
+                    @ApiResponse(responseCode = "503", description = "Too many pending reports, retry later",
+                            content = @Content)
+            })
+    @PostMapping("/{id}/heartbeat")
+    public ResponseEntity<Void> heartbeat(@PathVariable Long id, @RequestBody @Valid DeviceHeartbeatRequest request) {
+        heartbeatBuffer.report(id, request.state());
+        return ResponseEntity.accepted().build();
     }
 
     @Operation(summary = "Get device by ID", responses = {
             @ApiResponse(responseCode = "200", description = "Found the device",
                     content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Device matches If-None-Match", content = @Content),
             @ApiResponse(responseCode = "404", description = "Device not found", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<DeviceResponse> get(@PathVariable Long id) {
-        return ResponseEntity.ok(service.get(id));
+    public ResponseEntity<DeviceResponse> get(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            var version = service.getVersion(id);
+            if (DeviceETags.matchesAny(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(DeviceETags.of(version)).build();
+            }
+        }
+        var device = service.get(id);
+        return ResponseEntity.ok().eTag(DeviceETags.of(device.version())).body(device);
+    }
+
+    @Operation(summary = "Get many devices by ID at once",
+            description = "Returns the found devices in request order and the ids that do not exist")
+    @PostMapping("/lookup")
+    public ResponseEntity<DeviceLookupResponse> lookup(@RequestBody @Valid DeviceLookupRequest request) {
+        return ResponseEntity.ok(service.lookup(request.ids()));
     }
 
     @Operation(summary = "Search for devices with optional filters and pagination",
-            description = "Returns all devices if called without parameters")
+            description = "Returns all devices if called without parameters. "
+                    + "name matches a name prefix and q a substring of name or brand, both case-insensitive. "
+                    + "Pass withTotal=false to skip computing totalPages/totalElements and only get hasNext")
     @GetMapping
     public ResponseEntity<DevicesPageResponse> search(
             @ParameterObject @ModelAttribute DeviceSearchParams params,
-            @ParameterObject @PageableDefault(size = Integer.MAX_VALUE) Pageable pageable) {
+            @ParameterObject @PageableDefault(size = Integer.MAX_VALUE) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        if (!withTotal) {
+            return ResponseEntity.ok(service.searchSlice(params, pageable));
+        }
         return ResponseEntity.ok(service.search(params, pageable));
     }
 
-    @Operation(summary = "Fully update device")
+    @Operation(summary = "Scroll through devices with optional filters using keyset pagination",
+            description = "Pass the returned nextCursor as the after parameter to fetch the following page")
+    @GetMapping("/scroll")
+    public ResponseEntity<DevicesPageResponse> scroll(
+            @ParameterObject @ModelAttribute DeviceSearchParams params,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(service.scroll(params, after, size));
+    }
+
+    @Operation(summary = "Get devices changed and deleted since a watermark",
+            description = "Call without since for a full sync, then pass the returned watermark as since to only get "
+                    + "later changes. Sync again right away while hasMore is true")
+    @GetMapping("/sync")
+    public ResponseEntity<DeviceSyncResponse> sync(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(syncService.sync(since, size));
+    }
+
+    @Operation(summary = "Export devices with optional filters as NDJSON or CSV",
+            description = "Rows are streamed from the database, so the whole inventory can be exported in one call")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @ParameterObject @ModelAttribute DeviceSearchParams params,
+            @RequestParam(defaultValue = "NDJSON") DeviceExportFormat format) {
+        var contentDisposition = ContentDisposition.attachment()
+                .filename("devices." + format.getExtension())
+                .build();
+        StreamingResponseBody body = out -> exportService.export(params, format, out);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .body(body);
+    }
+
+    @Operation(summary = "Get device counts by state and by brand",
+            description = "Served from incrementally maintained counters, independent of the number of devices")
+    @GetMapping("/stats")
+    public ResponseEntity<DeviceStatsResponse> stats() {
+        return ResponseEntity.ok(statsService.getStats());
+    }
+
+    @Operation(summary = "Stream device changes as Server-Sent Events",
+            description = "Streams the changes made through the connected instance. Every event carries an id; "
+                    + "reconnect with Last-Event-ID to resume. A reset event means the missed changes are no longer "
+                    + "buffered or the id was issued by another instance, and devices must be re-read")
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(lastEventId);
+    }
+
+    @Operation(summary = "Fully update device",
+            description = "Pass the device ETag as If-Match to only update if nobody changed the device meanwhile")
     @PutMapping("/{id}")
     public ResponseEntity<DeviceResponse> fullUpdate(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Validated(CreateOrUpdate.class) DeviceCreateOrUpdateRequest request) {
-        return ResponseEntity.ok(service.update(id, request));
+        return updated(service.update(id, request, DeviceETags.expectedVersions(ifMatch)));
     }
 
-    @Operation(summary = "Partially update device")
+    @Operation(summary = "Partially update device",
+            description = "Pass the device ETag as If-Match to only update if nobody changed the device meanwhile")
     @PatchMapping("/{id}")
     public ResponseEntity<DeviceResponse> partialUpdate(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody DeviceCreateOrUpdateRequest request) {
-        return ResponseEntity.ok(service.update(id, request));
+        return updated(service.update(id, request, DeviceETags.expectedVersions(ifMatch)));
     }
 
     @Operation(summary = "Delete device by ID", responses = {
             @ApiResponse(responseCode = "204", description = "Deleted successfully"),
             @ApiResponse(responseCode = "400", description = "Device cannot be deleted", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Device not found", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Device not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Device does not match If-Match", content = @Content)
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        service.delete(id);
+    public ResponseEntity<Void> delete(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        service.delete(id, DeviceETags.expectedVersions(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<DeviceResponse> updated(DeviceResponse device) {
+        return ResponseEntity.ok().eTag(DeviceETags.of(device.version())).body(device);
+    }
 }
@@ -0,0 +1,29 @@
+package com.ig.devices.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of a single element of a batch request")
+public record DeviceBatchItemResult(
+        @Schema(description = "Position of the element in the request", example = "0")
+        int index,
+
+        @Schema(description = "Created device, absent if the element was rejected")
+        DeviceResponse device,
+
+        @Schema(description = "Validation errors, absent if the device was created")
+        List<String> errors
+) {
+
+    public static DeviceBatchItemResult created(int index, DeviceResponse device) {
+        return new DeviceBatchItemResult(index, device, null);
+    }
+
+    public static DeviceBatchItemResult rejected(int index, List<String> errors) {
+        return new DeviceBatchItemResult(index, null, errors);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.ig.devices.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Response object of a batch create request")
+public record DeviceBatchResponse(
+        @Schema(description = "Number of created devices", example = "2")
+        int created,
+
+        @Schema(description = "Number of rejected devices", example = "0")
+        int rejected,
+
+        @Schema(description = "Per element results, in request order")
+        List<DeviceBatchItemResult> results
+) {
+}
@@ -0,0 +1,31 @@
+package com.ig.devices.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A device was created, updated or deleted")
+public record DeviceChangeEvent(
+        @Schema(description = "Kind of change", example = "UPDATED")
+        DeviceChangeType type,
+
+        @Schema(description = "Device ID", example = "1")
+        Long id,
+
+        @Schema(description = "Device after the change, absent for deleted devices")
+        DeviceResponse device
+) {
+
+    public static DeviceChangeEvent created(DeviceResponse device) {
+        return new DeviceChangeEvent(DeviceChangeType.CREATED, device.id(), device);
+    }
+
+    public static DeviceChangeEvent updated(DeviceResponse device) {
+        return new DeviceChangeEvent(DeviceChangeType.UPDATED, device.id(), device);
+    }
+
+    public static DeviceChangeEvent deleted(Long id) {
+        return new DeviceChangeEvent(DeviceChangeType.DELETED, id, null);
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.ig.devices.dto;
+
+public enum DeviceChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
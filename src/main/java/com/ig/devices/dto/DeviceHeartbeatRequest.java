@@ -0,0 +1,13 @@
+package com.ig.devices.dto;
+
+import com.ig.devices.model.DeviceState;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Request object used by a device to report its current state")
+public record DeviceHeartbeatRequest(
+        @Schema(description = "Current state of the device", example = "IN_USE")
+        @NotNull
+        DeviceState state
+) {
+}
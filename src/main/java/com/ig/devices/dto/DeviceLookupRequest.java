@@ -0,0 +1,14 @@
+package com.ig.devices.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+@Schema(description = "Request object used to get many devices by ID at once")
+public record DeviceLookupRequest(
+        @Schema(description = "Ids of the devices to get", example = "[1, 2, 3]")
+        @NotNull
+        List<Long> ids
+) {
+}
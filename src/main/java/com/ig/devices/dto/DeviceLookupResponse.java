@@ -0,0 +1,15 @@
+package com.ig.devices.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Response object of a lookup of many devices by ID")
+public record DeviceLookupResponse(
+        @Schema(description = "Found devices, in the order they were requested")
+        List<DeviceResponse> devices,
+
+        @Schema(description = "Requested ids that do not exist", example = "[4]")
+        List<Long> missingIds
+) {
+}
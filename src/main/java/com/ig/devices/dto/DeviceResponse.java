@@ -15,6 +15,9 @@ public record DeviceResponse(
         String brand,
 
         @Schema(description = "Device state", example = "AVAILABLE")
-        DeviceState state
+        DeviceState state,
+
+        @Schema(description = "Device version, incremented on every update. Also returned as the ETag", example = "0")
+        Long version
 ) {
 }
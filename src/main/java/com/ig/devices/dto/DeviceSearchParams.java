@@ -2,6 +2,7 @@ package com.ig.devices.dto;
 
 import com.ig.devices.model.DeviceState;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestParam;
 
 @Schema(description = "Search parameters for querying devices")
@@ -12,7 +13,29 @@ public record DeviceSearchParams(
 
         @Schema(description = "Filter by state", example = "AVAILABLE")
         @RequestParam(required = false)
-        DeviceState state
+        DeviceState state,
+
+        @Schema(description = "Filter by case-insensitive name prefix", example = "Some")
+        @RequestParam(required = false)
+        String name,
+
+        @Schema(description = "Filter by case-insensitive substring of name or brand. "
+                + "Unless sorted otherwise, results are ordered by similarity", example = "name")
+        @RequestParam(required = false)
+        String q
 ) {
+
+    public DeviceSearchParams(String brand, DeviceState state) {
+        this(brand, state, null, null);
+    }
+
+    public DeviceSearchParams normalized() {
+        return new DeviceSearchParams(
+                StringUtils.hasText(brand) ? brand : null,
+                state,
+                StringUtils.hasText(name) ? name : null,
+                StringUtils.hasText(q) ? q : null);
+    }
+
 }
 
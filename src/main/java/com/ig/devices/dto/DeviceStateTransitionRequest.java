@@ -0,0 +1,22 @@
+package com.ig.devices.dto;
+
+import com.ig.devices.model.DeviceState;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+@Schema(description = "Request object used to move many devices to another state. "
+        + "Exactly one of ids and filter must be set")
+public record DeviceStateTransitionRequest(
+        @Schema(description = "Ids of the devices to move", example = "[1, 2, 3]")
+        List<Long> ids,
+
+        @Schema(description = "Filter selecting the devices to move")
+        DeviceSearchParams filter,
+
+        @Schema(description = "State to move the devices to", example = "IN_USE")
+        @NotNull
+        DeviceState targetState
+) {
+}
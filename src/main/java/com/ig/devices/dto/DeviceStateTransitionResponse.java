@@ -0,0 +1,18 @@
+package com.ig.devices.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Response object of a bulk state transition")
+public record DeviceStateTransitionResponse(
+        @Schema(description = "Devices moved to the target state", example = "[1, 2]")
+        List<Long> affectedIds,
+
+        @Schema(description = "Devices that already were in the target state", example = "[3]")
+        List<Long> unchangedIds,
+
+        @Schema(description = "Requested devices that do not exist", example = "[4]")
+        List<Long> rejectedIds
+) {
+}
@@ -0,0 +1,19 @@
+package com.ig.devices.dto;
+
+import com.ig.devices.model.DeviceState;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@Schema(description = "Response object with device inventory statistics")
+public record DeviceStatsResponse(
+        @Schema(description = "Total number of devices", example = "3")
+        long total,
+
+        @Schema(description = "Number of devices per state", example = "{\"AVAILABLE\": 2, \"IN_USE\": 1}")
+        Map<DeviceState, Long> byState,
+
+        @Schema(description = "Number of devices per brand", example = "{\"Some brand\": 3}")
+        Map<String, Long> byBrand
+) {
+}
@@ -0,0 +1,21 @@
+package com.ig.devices.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Devices changed and deleted since a watermark")
+public record DeviceSyncResponse(
+        @Schema(description = "Devices created or updated since the watermark")
+        List<DeviceResponse> changed,
+
+        @Schema(description = "Ids of devices deleted since the watermark", example = "[4]")
+        List<Long> deletedIds,
+
+        @Schema(description = "Watermark to pass as since on the next sync")
+        String watermark,
+
+        @Schema(description = "Whether more changes are waiting, in which case sync again right away")
+        boolean hasMore
+) {
+}
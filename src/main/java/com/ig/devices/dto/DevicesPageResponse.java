@@ -1,11 +1,16 @@
 package com.ig.devices.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record DevicesPageResponse(
         List<DeviceResponse> content,
         int number,
         int size,
-        int totalPages,
-        long totalElements
-) {}
\ No newline at end of file
+        Integer totalPages,
+        Long totalElements,
+        boolean hasNext,
+        String nextCursor
+) {}
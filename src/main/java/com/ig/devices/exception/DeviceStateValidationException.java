@@ -2,8 +2,18 @@ package com.ig.devices.exception;
 
 public class DeviceStateValidationException extends RuntimeException {
 
-    public DeviceStateValidationException(String message) {
+    private final String reason;
+
+    /**
+     * @param reason short, stable code of the rejection, used as metric tag
+     */
+    public DeviceStateValidationException(String reason, String message) {
         super(message);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
     }
 
 }
@@ -6,10 +6,10 @@ import com.ig.devices.dto.DevicesPageResponse;
 import com.ig.devices.model.Device;
 import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
-import org.mapstruct.MappingTarget;
-import org.mapstruct.NullValuePropertyMappingStrategy;
+import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
@@ -21,9 +21,13 @@ public interface DeviceMapper {
     @BeanMapping(unmappedTargetPolicy = ReportingPolicy.IGNORE)
     Device toModel(DeviceCreateOrUpdateRequest deviceCreateOrUpdateRequest);
 
-    @BeanMapping(unmappedTargetPolicy = ReportingPolicy.IGNORE,
-            nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
-    void updateModelFromRequest(DeviceCreateOrUpdateRequest update, @MappingTarget Device destination);
-
+    @Mapping(target = "hasNext", expression = "java(page.hasNext())")
+    @Mapping(target = "nextCursor", ignore = true)
     DevicesPageResponse toDevicesPageResponse(Page<DeviceResponse> page);
+
+    @Mapping(target = "totalPages", ignore = true)
+    @Mapping(target = "totalElements", ignore = true)
+    @Mapping(target = "hasNext", expression = "java(slice.hasNext())")
+    @Mapping(target = "nextCursor", ignore = true)
+    DevicesPageResponse toDevicesSliceResponse(Slice<DeviceResponse> slice);
 }
@@ -7,7 +7,9 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -19,7 +21,8 @@ import java.util.Objects;
 public class Device {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -34,9 +37,18 @@ public class Device {
     private Instant createdAt;
 
     @UpdateTimestamp
-    @Column
+    @Column(nullable = false)
     private Instant updatedAt;
 
+    @Version
+    private Long version;
+
+    /**
+     * Id of the transaction that last wrote the device, stamped by a trigger. Orders changes for delta sync.
+     */
+    @Column(insertable = false, updatable = false)
+    private Long changeXid;
+
     public Long getId() {
         return id;
     }
@@ -85,14 +97,26 @@ public class Device {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof Device device)) return false;
-        return Objects.equals(id, device.id) && Objects.equals(name, device.name) && Objects.equals(brand, device.brand) && state == device.state && Objects.equals(createdAt, device.createdAt) && Objects.equals(updatedAt, device.updatedAt);
+        return Objects.equals(id, device.id) && Objects.equals(name, device.name) && Objects.equals(brand, device.brand) && state == device.state && Objects.equals(createdAt, device.createdAt) && Objects.equals(updatedAt, device.updatedAt) && Objects.equals(version, device.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, brand, state, createdAt, updatedAt);
+        return Objects.hash(id, name, brand, state, createdAt, updatedAt, version);
     }
 }
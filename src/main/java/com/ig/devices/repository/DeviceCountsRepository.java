@@ -0,0 +1,102 @@
+package com.ig.devices.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Access to the per brand and state device counts. Statement triggers on {@code devices} append the changes of
+ * every write to {@code device_count_deltas}, which are periodically folded into {@code device_counts}. Writers
+ * only ever insert deltas, so they never wait on each other for a shared counter row.
+ * Brands and states that are null on the device are stored as empty strings.
+ */
+@Repository
+public class DeviceCountsRepository {
+
+    private static final long FOLD_LOCK = 0x6465766963657301L;
+    private static final long RECONCILE_LOCK = 0x6465766963657302L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeviceCountsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Current counts, including deltas not folded yet.
+     */
+    public List<DeviceCount> findAll() {
+        return jdbcTemplate.query("""
+                SELECT brand, state, sum(device_count) FROM (
+                    SELECT brand, state, device_count FROM device_counts
+                    UNION ALL
+                    SELECT brand, state, delta FROM device_count_deltas
+                ) AS counts
+                GROUP BY brand, state HAVING sum(device_count) > 0
+                """,
+                (rs, rowNum) -> new DeviceCount(rs.getString(1), rs.getString(2), rs.getLong(3)));
+    }
+
+    /**
+     * Moves the deltas visible to this transaction into the counts. Skipped if another instance is folding.
+     *
+     * @return the number of deltas folded
+     */
+    public int fold() {
+        if (!tryLock(FOLD_LOCK)) {
+            return 0;
+        }
+        return jdbcTemplate.queryForObject("""
+                WITH folded AS (
+                    DELETE FROM device_count_deltas RETURNING brand, state, delta
+                ), upserted AS (
+                    INSERT INTO device_counts (brand, state, device_count)
+                    SELECT brand, state, sum(delta) FROM folded GROUP BY brand, state ORDER BY brand, state
+                    ON CONFLICT (brand, state) DO UPDATE SET device_count = device_counts.device_count + EXCLUDED.device_count
+                )
+                SELECT count(*) FROM folded
+                """, Integer.class);
+    }
+
+    /**
+     * Compares the counts with an aggregate over {@code devices} and records the difference as a delta. Both are
+     * read from one snapshot and nothing is locked, so device writes carry on meanwhile. Skipped if another
+     * instance reconciled within {@code interval} or is reconciling right now.
+     *
+     * @return whether counts were reconciled
+     */
+    public boolean reconcile(Duration interval) {
+        if (!tryLock(RECONCILE_LOCK)) {
+            return false;
+        }
+        var due = jdbcTemplate.update(
+                "UPDATE device_counts_reconciled SET reconciled_at = now() "
+                        + "WHERE reconciled_at <= now() - make_interval(secs => ?)",
+                interval.toMillis() / 1000.0);
+        if (due == 0) {
+            return false;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO device_count_deltas (brand, state, delta)
+                SELECT brand, state, sum(delta) FROM (
+                    SELECT COALESCE(brand, ''), COALESCE(state, ''), count(*) FROM devices GROUP BY 1, 2
+                    UNION ALL
+                    SELECT brand, state, -device_count FROM device_counts
+                    UNION ALL
+                    SELECT brand, state, -delta FROM device_count_deltas
+                ) AS difference (brand, state, delta)
+                GROUP BY brand, state HAVING sum(delta) <> 0
+                """);
+        return true;
+    }
+
+    private boolean tryLock(long key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, key));
+    }
+
+    public record DeviceCount(String brand, String state, long count) {
+    }
+
+}
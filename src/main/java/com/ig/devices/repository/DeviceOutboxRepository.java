@@ -0,0 +1,57 @@
+package com.ig.devices.repository;
+
+import com.ig.devices.dto.DeviceChangeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Access to {@code device_outbox}, the device change events waiting to be relayed to downstream systems.
+ */
+@Repository
+public class DeviceOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeviceOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all messages with one batched statement. Message ids are assigned by the database.
+     */
+    public void insertAll(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO device_outbox (device_id, event_type, payload) VALUES (?, ?, CAST(? AS JSONB))",
+                messages, messages.size(), (ps, message) -> {
+                    ps.setLong(1, message.deviceId());
+                    ps.setString(2, message.type().name());
+                    ps.setString(3, message.payload());
+                });
+    }
+
+    /**
+     * Locks and returns the oldest messages not locked by another transaction, so concurrent relays claim
+     * disjoint batches. The locks are held until the surrounding transaction ends.
+     */
+    public List<OutboxMessage> claim(int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, device_id, event_type, payload FROM device_outbox
+                        ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED
+                        """,
+                (rs, rowNum) -> new OutboxMessage(rs.getLong(1), rs.getLong(2),
+                        DeviceChangeType.valueOf(rs.getString(3)), rs.getString(4)),
+                limit);
+    }
+
+    public void deleteAll(List<OutboxMessage> messages) {
+        var ids = messages.stream().map(OutboxMessage::id).toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM device_outbox WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+    }
+
+    public record OutboxMessage(Long id, Long deviceId, DeviceChangeType type, String payload) {
+    }
+
+}
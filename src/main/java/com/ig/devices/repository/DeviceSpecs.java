@@ -8,9 +8,12 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Locale;
 
 public class DeviceSpecs {
 
+    private static final char ESCAPE = '\\';
+
     public static Specification<Device> fromSearchParams(DeviceSearchParams params) {
         return (root, query, builder) -> {
             var predicates = new ArrayList<Predicate>();
@@ -21,9 +24,52 @@ public class DeviceSpecs {
             if (params.state() != null) {
                 predicates.add(builder.equal(root.get(Device_.state), params.state()));
             }
+            if (StringUtils.hasText(params.name())) {
+                predicates.add(builder.like(builder.lower(root.get(Device_.name)), prefixPattern(params.name()), ESCAPE));
+            }
+            if (StringUtils.hasText(params.q())) {
+                var name = builder.lower(root.get(Device_.name));
+                var brand = builder.lower(root.get(Device_.brand));
+                var pattern = containsPattern(params.q());
+                predicates.add(builder.or(builder.like(name, pattern, ESCAPE), builder.like(brand, pattern, ESCAPE)));
+
+                // callers apply their own sort afterwards, which replaces this one
+                if (query != null && query.getOrderList().isEmpty()) {
+                    var q = builder.literal(params.q().toLowerCase(Locale.ROOT));
+                    var similarity = builder.function("greatest", Double.class,
+                            builder.function("similarity", Double.class, name, q),
+                            builder.function("similarity", Double.class, brand, q));
+                    query.orderBy(builder.desc(similarity), builder.asc(root.get(Device_.id)));
+                }
+            }
 
             return builder.and(predicates.toArray(new Predicate[0]));
         };
     }
 
+    public static Specification<Device> idGreaterThan(Long id) {
+        return (root, query, builder) -> builder.greaterThan(root.get(Device_.id), id);
+    }
+
+    /**
+     * Case-insensitive LIKE pattern for values starting with {@code value}, escaped with a backslash.
+     */
+    public static String prefixPattern(String value) {
+        return escapeLike(value) + "%";
+    }
+
+    /**
+     * Case-insensitive LIKE pattern for values containing {@code value}, escaped with a backslash.
+     */
+    public static String containsPattern(String value) {
+        return "%" + escapeLike(value) + "%";
+    }
+
+    private static String escapeLike(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
 }
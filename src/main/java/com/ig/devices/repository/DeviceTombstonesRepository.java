@@ -0,0 +1,45 @@
+package com.ig.devices.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Access to {@code device_tombstones}, the ids of deleted devices recorded by a trigger on {@code devices}.
+ */
+@Repository
+public class DeviceTombstonesRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeviceTombstonesRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Tombstones after the {@code (sinceXid, sinceId)} watermark recorded by transactions older than
+     * {@code untilXid}, in watermark order.
+     */
+    public List<DeviceTombstone> findDeletedSince(long sinceXid, long sinceId, long untilXid, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, change_xid FROM device_tombstones
+                        WHERE (change_xid, id) > (?, ?)
+                          AND change_xid < ?
+                        ORDER BY change_xid, id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> new DeviceTombstone(rs.getLong(1), rs.getLong(2)),
+                sinceXid, sinceId, untilXid, limit);
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM device_tombstones WHERE deleted_at < ?", Timestamp.from(cutoff));
+    }
+
+    public record DeviceTombstone(long id, long changeXid) {
+    }
+
+}
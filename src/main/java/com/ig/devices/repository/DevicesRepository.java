@@ -1,9 +1,139 @@
 package com.ig.devices.repository;
 
+import com.ig.devices.dto.DeviceResponse;
 import com.ig.devices.model.Device;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface DevicesRepository extends JpaRepository<Device, Long>, JpaSpecificationExecutor<Device> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DevicesRepository extends JpaRepository<Device, Long>, JpaSpecificationExecutor<Device>,
+        DevicesRepositoryCustom {
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new com.ig.devices.dto.DeviceResponse(d.id, d.name, d.brand, d.state, d.version)
+            from Device d
+            where d.id = :id
+            """)
+    Optional<DeviceResponse> findResponseById(Long id);
+
+    @Query("select d.version from Device d where d.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new com.ig.devices.dto.DeviceResponse(d.id, d.name, d.brand, d.state, d.version)
+            from Device d
+            where d.id in :ids
+            """)
+    List<DeviceResponse> findResponsesByIdIn(Collection<Long> ids);
+
+    /**
+     * Devices changed after the {@code (sinceXid, sinceId)} watermark by transactions older than {@code untilXid},
+     * in watermark order.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM devices
+            WHERE (change_xid, id) > (:sinceXid, :sinceId)
+              AND change_xid < :untilXid
+            ORDER BY change_xid, id
+            LIMIT :limit
+            """)
+    List<Device> findChangedSince(long sinceXid, long sinceId, long untilXid, int limit);
+
+    /**
+     * The oldest transaction id still running. Every transaction older than it has committed or rolled back, so
+     * changes stamped with a lower id can no longer appear.
+     */
+    @Query(nativeQuery = true, value = "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)")
+    long findCompletedXidHorizon();
+
+    @Query(nativeQuery = true, value = "SELECT id FROM devices WHERE id = ANY(:ids)")
+    List<Long> findExistingIds(Long[] ids);
+
+    /**
+     * Moves the given devices to {@code state} in a single statement, skipping the ones already in that state.
+     *
+     * @return the devices that changed
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            UPDATE devices
+            SET state = :state,
+                updated_at = :updatedAt,
+                version = version + 1
+            WHERE id = ANY(:ids)
+              AND state IS DISTINCT FROM :state
+            RETURNING *
+            """)
+    List<Device> updateStateIn(Long[] ids, String state, Instant updatedAt);
+
+    /**
+     * Same as {@link #updateStateIn} but only moves the devices that still match the filter, so a device changed
+     * by a concurrent transaction after it was selected is not moved by mistake. Null filter values match all.
+     * The name patterns are lower-case LIKE patterns as built by {@link DeviceSpecs}.
+     *
+     * @return the devices that changed
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            UPDATE devices
+            SET state = :state,
+                updated_at = :updatedAt,
+                version = version + 1
+            WHERE id = ANY(:ids)
+              AND state IS DISTINCT FROM :state
+              AND (CAST(:filterBrand AS VARCHAR) IS NULL OR brand = :filterBrand)
+              AND (CAST(:filterState AS VARCHAR) IS NULL OR state = :filterState)
+              AND (CAST(:namePattern AS VARCHAR) IS NULL OR lower(name) LIKE :namePattern)
+              AND (CAST(:textPattern AS VARCHAR) IS NULL
+                   OR lower(name) LIKE :textPattern OR lower(brand) LIKE :textPattern)
+            RETURNING *
+            """)
+    List<Device> updateStateInMatching(Long[] ids, String filterBrand, String filterState, String namePattern,
+                                       String textPattern, String state, Instant updatedAt);
+
+    /**
+     * Applies the non-null values to the device in a single statement. While the device is IN_USE the update only
+     * matches if {@code guardName}/{@code guardBrand} are null or equal to the stored name/brand.
+     * Unless {@code anyVersion} is set, the stored version additionally has to be one of {@code expectedVersions}.
+     *
+     * @return the updated device, or empty if it does not exist or one of the guards rejected the update
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            UPDATE devices
+            SET name = COALESCE(CAST(:name AS VARCHAR), name),
+                brand = COALESCE(CAST(:brand AS VARCHAR), brand),
+                state = COALESCE(CAST(:state AS VARCHAR), state),
+                updated_at = :updatedAt,
+                version = version + 1
+            WHERE id = :id
+              AND (:anyVersion OR version = ANY(:expectedVersions))
+              AND (state IS DISTINCT FROM 'IN_USE'
+                   OR ((CAST(:guardName AS VARCHAR) IS NULL OR name = :guardName)
+                       AND (CAST(:guardBrand AS VARCHAR) IS NULL OR brand = :guardBrand)))
+            RETURNING *
+            """)
+    Optional<Device> updateIfAllowed(Long id, String name, String brand, String state,
+                                     String guardName, String guardBrand, boolean anyVersion,
+                                     Long[] expectedVersions, Instant updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM devices
+            WHERE id = :id
+              AND (:anyVersion OR version = ANY(:expectedVersions))
+              AND state IS DISTINCT FROM 'IN_USE'
+            """)
+    int deleteIfNotInUse(Long id, boolean anyVersion, Long[] expectedVersions);
 
 }
@@ -0,0 +1,36 @@
+package com.ig.devices.repository;
+
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.model.Device;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface DevicesRepositoryCustom {
+
+    /**
+     * Same as {@code findAll(spec, pageable)} but without the extra count query:
+     * one more row than requested is fetched to tell whether a next slice exists.
+     * Rows are projected straight into responses, so no entities are loaded into the persistence context.
+     */
+    Slice<DeviceResponse> findResponseSlice(Specification<Device> spec, Pageable pageable);
+
+    /**
+     * Streams matching devices through a forward-only cursor, fetching {@code fetchSize} rows per round trip.
+     * Returned devices are detached, so the persistence context does not grow with the result.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<Device> streamAll(Specification<Device> spec, Sort sort, int fetchSize);
+
+    /**
+     * Ids of at most {@code limit} matching devices, in ascending order. The rows are locked until the end of the
+     * transaction, and the filter is re-evaluated against rows that were changed concurrently before locking them,
+     * so the matching devices cannot change until the caller is done with them.
+     */
+    List<Long> findIds(Specification<Device> spec, int limit);
+
+}
@@ -0,0 +1,108 @@
+package com.ig.devices.repository;
+
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.model.Device;
+import com.ig.devices.model.Device_;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+class DevicesRepositoryCustomImpl implements DevicesRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<DeviceResponse> findResponseSlice(Specification<Device> spec, Pageable pageable) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(DeviceResponse.class);
+        var root = query.from(Device.class);
+        query.select(builder.construct(DeviceResponse.class,
+                root.get(Device_.id),
+                root.get(Device_.name),
+                root.get(Device_.brand),
+                root.get(Device_.state),
+                root.get(Device_.version)));
+
+        var predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        }
+
+        var typedQuery = entityManager.createQuery(query);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(typedQuery.getResultList());
+        }
+
+        var pageSize = pageable.getPageSize();
+        typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+        typedQuery.setMaxResults(pageSize < Integer.MAX_VALUE ? pageSize + 1 : pageSize);
+
+        var content = new ArrayList<>(typedQuery.getResultList());
+        var hasNext = content.size() > pageSize;
+        if (hasNext) {
+            content.removeLast();
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public Stream<Device> streamAll(Specification<Device> spec, Sort sort, int fetchSize) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(Device.class);
+        var root = query.from(Device.class);
+
+        var predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        }
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(device -> {
+                    entityManager.detach(device);
+                    return device;
+                });
+    }
+
+    @Override
+    @Transactional
+    public List<Long> findIds(Specification<Device> spec, int limit) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(Long.class);
+        var root = query.from(Device.class);
+        query.select(root.get(Device_.id));
+
+        var predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(builder.asc(root.get(Device_.id)));
+
+        return entityManager.createQuery(query)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+}
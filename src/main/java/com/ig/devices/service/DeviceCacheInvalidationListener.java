@@ -0,0 +1,209 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.CacheConfig;
+import com.ig.devices.config.CacheInvalidationProperties;
+import com.ig.devices.config.DeviceCacheFence;
+import com.ig.devices.dto.DeviceResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the local device caches coherent with writes made by other instances. A trigger on {@code devices}
+ * notifies every committed insert, update and delete on the {@value #CHANNEL} channel; this listener holds one
+ * dedicated connection listening on it, collects notifications for a short window and evicts the cached devices
+ * below the notified version, so the entry an instance cached for its own write stays. Deletes and writes that kept
+ * the version are notified without one and always evicted. The notified versions are also handed to the
+ * {@link DeviceCacheFence}, so reads that loaded a device before the change cannot cache it afterwards. Notifications sent while not listening are lost, so all caches are cleared whenever the connection is
+ * (re)established.
+ */
+@Component
+@ConditionalOnProperty(prefix = "devices.cache-invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DeviceCacheInvalidationListener implements SmartLifecycle {
+
+    static final String CHANNEL = "device_changes";
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceCacheInvalidationListener.class);
+    private static final int IDLE_CHECK_MILLIS = 10_000;
+    // deletes and writes that kept the version, newer than any cached copy
+    private static final long ANY_VERSION = Long.MAX_VALUE;
+
+    private final JdbcConnectionDetails connectionDetails;
+    private final CacheManager cacheManager;
+    private final DeviceCacheFence fence;
+    private final DeviceCountCache countCache;
+    private final CacheInvalidationProperties properties;
+    private final Counter invalidations;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public DeviceCacheInvalidationListener(JdbcConnectionDetails connectionDetails, CacheManager cacheManager,
+                                           DeviceCacheFence fence, DeviceCountCache countCache,
+                                           CacheInvalidationProperties properties, MeterRegistry meterRegistry) {
+        this.connectionDetails = connectionDetails;
+        this.cacheManager = cacheManager;
+        this.fence = fence;
+        this.countCache = countCache;
+        this.properties = properties;
+        this.invalidations = Counter.builder("devices.cache.invalidations")
+                .description("Device change notifications received from the database")
+                .register(meterRegistry);
+        this.failures = Counter.builder("devices.cache.invalidation.failures")
+                .description("Times the cache invalidation connection failed and had to be re-established")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = Thread.ofVirtual().name("device-cache-invalidation").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeConnection();
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try (var connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                    connectionDetails.getUsername(), connectionDetails.getPassword())) {
+                this.connection = connection;
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                apply(Map.of(), true);
+                listen(connection);
+            } catch (SQLException | RuntimeException e) {
+                // anything ending the loop would silently stop invalidation for good, so always reconnect
+                if (running) {
+                    failures.increment();
+                    log.error("Device cache invalidation failed, clearing caches and reconnecting in {}",
+                            properties.reconnectDelay(), e);
+                    sleep();
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        var pgConnection = connection.unwrap(PGConnection.class);
+        var batchWindowNanos = properties.batchWindow().toNanos();
+        while (running) {
+            var pending = new HashMap<Long, Long>();
+            var notifications = pgConnection.getNotifications(IDLE_CHECK_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                // fails if the server went away without closing the socket
+                try (var statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                continue;
+            }
+
+            var clearAll = collect(notifications, pending);
+            var deadline = System.nanoTime() + batchWindowNanos;
+            for (var remaining = batchWindowNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+                var timeoutMillis = (int) Math.max(1, remaining / 1_000_000);
+                clearAll |= collect(pgConnection.getNotifications(timeoutMillis), pending);
+            }
+            apply(pending, clearAll);
+        }
+    }
+
+    /**
+     * Merges notifications into {@code pending}, keeping the highest version per device.
+     *
+     * @return whether one of the notifications asks to clear everything, or could not be parsed
+     */
+    private static boolean collect(PGNotification[] notifications, Map<Long, Long> pending) {
+        if (notifications == null) {
+            return false;
+        }
+        var clearAll = false;
+        for (var notification : notifications) {
+            var payload = notification.getParameter();
+            if ("*".equals(payload)) {
+                clearAll = true;
+                continue;
+            }
+            try {
+                var separator = payload.indexOf(':');
+                if (separator < 0) {
+                    pending.merge(Long.parseLong(payload), ANY_VERSION, Math::max);
+                } else {
+                    var version = payload.substring(separator + 1);
+                    pending.merge(Long.parseLong(payload.substring(0, separator)),
+                            "*".equals(version) ? ANY_VERSION : Long.parseLong(version), Math::max);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Unexpected device change notification '{}', clearing caches", payload);
+                clearAll = true;
+            }
+        }
+        return clearAll;
+    }
+
+    private void apply(Map<Long, Long> pending, boolean clearAll) {
+        var cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DEVICES));
+        if (clearAll) {
+            fence.fenceAll();
+            cache.clear();
+        } else {
+            pending.forEach((id, version) -> {
+                fence.fence(id, version);
+                var cached = cache.get(id, DeviceResponse.class);
+                if (cached != null && cached.version() < version) {
+                    cache.evict(id);
+                }
+            });
+        }
+        countCache.invalidateAll();
+        invalidations.increment(pending.size());
+    }
+
+    private void closeConnection() {
+        var current = connection;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Closing device cache invalidation connection failed", e);
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(properties.reconnectDelay());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
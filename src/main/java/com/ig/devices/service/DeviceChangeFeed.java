@@ -0,0 +1,215 @@
+package com.ig.devices.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ig.devices.config.ChangeFeedProperties;
+import com.ig.devices.dto.DeviceChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans committed device changes out to Server-Sent Events subscribers.
+ * <p>
+ * Every change gets the next sequence number of this instance and is kept in a bounded replay buffer, so
+ * subscribers can resume from their Last-Event-ID. Event ids are prefixed with an epoch chosen at startup, so an id
+ * issued by another instance, or by this one before a restart, never matches a sequence number here and leads to a
+ * reset instead of silently skipped changes. Each subscriber has its own bounded queue drained by its own
+ * virtual thread; publishing never blocks on a subscriber. A subscriber whose queue is full is dropped and is
+ * expected to reconnect and catch up from the replay buffer.
+ */
+@Component
+public class DeviceChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceChangeFeed.class);
+
+    private final ObjectMapper objectMapper;
+    private final ChangeFeedProperties properties;
+    private final Counter droppedSubscribers;
+
+    private final String epoch = Long.toUnsignedString(new SecureRandom().nextLong(), 36);
+    private final Object lock = new Object();
+    private final ArrayDeque<Change> replay = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long sequence;
+
+    public DeviceChangeFeed(ObjectMapper objectMapper, ChangeFeedProperties properties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        Gauge.builder("devices.changes.subscribers", subscribers, Set::size)
+                .description("Connected change feed subscribers")
+                .register(meterRegistry);
+        this.droppedSubscribers = Counter.builder("devices.changes.dropped")
+                .description("Change feed subscribers dropped for not keeping up")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(DeviceChangeEvent event) {
+        var data = serialize(event);
+        synchronized (lock) {
+            var change = new Change(++sequence, event, data);
+            replay.addLast(change);
+            if (replay.size() > properties.replaySize()) {
+                replay.removeFirst();
+            }
+            for (var subscriber : subscribers) {
+                if (!subscriber.queue.offer(change)) {
+                    drop(subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribes to changes after {@code lastEventId}, or to new changes only if it is null. If the changes since
+     * {@code lastEventId} are no longer buffered, or it was not issued by this instance since it started, the
+     * stream starts with a reset event instead.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        var emitter = new SseEmitter();
+        var subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(properties.subscriberBufferSize()));
+        List<Change> backlog = List.of();
+        Long resetTo = null;
+        synchronized (lock) {
+            if (lastEventId != null) {
+                var lastSequence = parseSequence(lastEventId);
+                if (lastSequence != null && canResumeFrom(lastSequence)) {
+                    backlog = replay.stream().filter(change -> change.sequence() > lastSequence).toList();
+                } else {
+                    resetTo = sequence;
+                }
+            }
+            subscribers.add(subscriber);
+        }
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        var initial = backlog;
+        var reset = resetTo;
+        Thread.ofVirtual().name("device-changes-sender").start(() -> subscriber.run(initial, reset));
+        return emitter;
+    }
+
+    @PreDestroy
+    void closeAll() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    private boolean canResumeFrom(long lastSequence) {
+        var oldest = replay.isEmpty() ? sequence + 1 : replay.getFirst().sequence();
+        return lastSequence >= oldest - 1 && lastSequence <= sequence;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * The sequence number of an event id issued by this instance since it started, null for any other id.
+     */
+    private Long parseSequence(String eventId) {
+        var prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        subscriber.close();
+        droppedSubscribers.increment();
+        log.debug("Dropped change feed subscriber with {} pending changes", subscriber.queue.size());
+    }
+
+    private String serialize(DeviceChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Change(long sequence, DeviceChangeEvent event, String data) {
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Change> queue;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Change> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        void run(List<Change> backlog, Long resetTo) {
+            try {
+                if (resetTo != null) {
+                    emitter.send(SseEmitter.event().id(eventId(resetTo)).name("reset").data(""));
+                }
+                for (var change : backlog) {
+                    send(change);
+                }
+                var heartbeatMillis = properties.heartbeatInterval().toMillis();
+                while (!closed) {
+                    var change = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    if (change != null) {
+                        send(change);
+                    } else {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // the client went away or the emitter timed out
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                emitter.complete();
+            }
+        }
+
+        private void send(Change change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(eventId(change.sequence()))
+                    .name(change.event().type().name())
+                    .data(change.data(), MediaType.APPLICATION_JSON));
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.ig.devices.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ig.devices.config.SearchProperties;
+import com.ig.devices.dto.DeviceSearchParams;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of search totals, so paging through the same filter does not
+ * run a full count on every request. Cleared on every device mutation.
+ */
+@Component
+public class DeviceCountCache {
+
+    private final Cache<DeviceSearchParams, Long> counts;
+
+    public DeviceCountCache(SearchProperties properties) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(properties.countCacheTtl())
+                .maximumSize(properties.countCacheMaxSize())
+                .build();
+    }
+
+    public long get(DeviceSearchParams params, LongSupplier counter) {
+        return counts.get(params.normalized(), key -> counter.getAsLong());
+    }
+
+    public void invalidateAll() {
+        counts.invalidateAll();
+    }
+
+}
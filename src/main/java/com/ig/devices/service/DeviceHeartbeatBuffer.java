@@ -0,0 +1,200 @@
+package com.ig.devices.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ig.devices.config.HeartbeatProperties;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.dto.DeviceChangeType;
+import com.ig.devices.dto.DeviceStateTransitionRequest;
+import com.ig.devices.exception.ServiceOverloadedException;
+import com.ig.devices.model.DeviceState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for state reports sent by devices. A report matching the last known state of its device is
+ * dropped, a report of a device that already has one pending replaces it, and the pending states are written every
+ * flush interval with bulk state transitions of a few hundred devices each, so no flush holds many row locks in
+ * one transaction. Once the configured number of devices is pending, reports of further devices are rejected until
+ * the next flush. Pending states are flushed on shutdown.
+ * <p>
+ * Last known states follow changes made through this instance right away and expire after a while, so changes
+ * made by other instances are picked up eventually. Devices a flush found not to exist are remembered the same
+ * way and their reports dropped, so reports of unknown ids cannot take up pending slots.
+ */
+@Component
+public class DeviceHeartbeatBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceHeartbeatBuffer.class);
+
+    private final ConcurrentHashMap<Long, DeviceState> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Cache<Long, DeviceState> lastKnown;
+    private final Cache<Long, Boolean> unknown;
+    private final DevicesBatchService batchService;
+    private final HeartbeatProperties properties;
+    private final Counter queued;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter unknownDevice;
+    private final Counter written;
+
+    public DeviceHeartbeatBuffer(DevicesBatchService batchService, HeartbeatProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.batchService = batchService;
+        this.properties = properties;
+        this.lastKnown = Caffeine.newBuilder()
+                .expireAfterWrite(properties.lastKnownTtl())
+                .maximumSize(properties.lastKnownMaxSize())
+                .build();
+        this.unknown = Caffeine.newBuilder()
+                .expireAfterWrite(properties.lastKnownTtl())
+                .maximumSize(properties.lastKnownMaxSize())
+                .build();
+        this.queued = reportCounter(meterRegistry, "queued");
+        this.coalesced = reportCounter(meterRegistry, "coalesced");
+        this.dropped = reportCounter(meterRegistry, "dropped");
+        this.rejected = reportCounter(meterRegistry, "rejected");
+        this.unknownDevice = reportCounter(meterRegistry, "unknown");
+        this.written = Counter.builder("devices.heartbeats.written")
+                .description("Devices whose state was changed by flushed state reports")
+                .register(meterRegistry);
+        Gauge.builder("devices.heartbeats.pending", pending, ConcurrentHashMap::size)
+                .description("Devices with a state report waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    public void report(long id, DeviceState state) {
+        if (pending.computeIfPresent(id, (key, current) -> state) != null) {
+            coalesced.increment();
+            return;
+        }
+        if (unknown.getIfPresent(id) != null) {
+            unknownDevice.increment();
+            return;
+        }
+        if (state == lastKnown.getIfPresent(id)) {
+            dropped.increment();
+            return;
+        }
+
+        // the capacity check and the insert happen under the lock of the id's entry, so concurrent reports can
+        // neither both take the last slot nor both count a new device
+        var outcome = new Counter[1];
+        pending.compute(id, (key, current) -> {
+            if (current != null) {
+                outcome[0] = coalesced;
+                return state;
+            }
+            if (!reserveSlot()) {
+                outcome[0] = rejected;
+                return null;
+            }
+            outcome[0] = queued;
+            return state;
+        });
+        outcome[0].increment();
+        if (outcome[0] == rejected) {
+            throw new ServiceOverloadedException("too many pending state reports, retry later");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${devices.heartbeat.flush-interval}",
+            initialDelayString = "${devices.heartbeat.flush-interval}")
+    public void flush() {
+        // not synchronized, a virtual thread holding a monitor during the writes would pin its carrier thread
+        flushLock.lock();
+        try {
+            var idsByState = new EnumMap<DeviceState, List<Long>>(DeviceState.class);
+            for (var entry : pending.entrySet()) {
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    pendingCount.decrementAndGet();
+                    idsByState.computeIfAbsent(entry.getValue(), state -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+
+            idsByState.forEach((state, ids) -> {
+                for (var from = 0; from < ids.size(); from += properties.flushChunkSize()) {
+                    write(state, ids.subList(from, Math.min(from + properties.flushChunkSize(), ids.size())));
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(DeviceChangeEvent event) {
+        if (event.type() == DeviceChangeType.DELETED) {
+            lastKnown.invalidate(event.id());
+            unknown.put(event.id(), Boolean.TRUE);
+        } else {
+            lastKnown.put(event.id(), event.device().state());
+            unknown.invalidate(event.id());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(DeviceState state, List<Long> ids) {
+        try {
+            var result = batchService.transitionState(new DeviceStateTransitionRequest(ids, null, state));
+            result.affectedIds().forEach(id -> lastKnown.put(id, state));
+            result.unchangedIds().forEach(id -> lastKnown.put(id, state));
+            result.rejectedIds().forEach(id -> unknown.put(id, Boolean.TRUE));
+            written.increment(result.affectedIds().size());
+        } catch (RuntimeException e) {
+            log.warn("Flushing {} state reports failed, retrying on next flush", ids.size(), e);
+            ids.forEach(id -> requeue(id, state));
+        }
+    }
+
+    private boolean reserveSlot() {
+        var count = pendingCount.get();
+        while (count < properties.maxPending()) {
+            if (pendingCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = pendingCount.get();
+        }
+        return false;
+    }
+
+    private void requeue(long id, DeviceState state) {
+        // already admitted once, so it may go over the limit; a newer report of the device wins
+        pending.compute(id, (key, current) -> {
+            if (current != null) {
+                return current;
+            }
+            pendingCount.incrementAndGet();
+            return state;
+        });
+    }
+
+    private static Counter reportCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("devices.heartbeats")
+                .description("Device state reports by what happened to them")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.OutboxProperties;
+import com.ig.devices.repository.DeviceOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains the outbox into the {@link DeviceOutboxSink} in batches. Each batch is claimed, sent and deleted in
+ * one transaction; claims skip rows locked by other instances, so several instances can relay in parallel.
+ * Messages are delivered in order within a batch, but not across concurrently relayed batches.
+ * Messages go to the {@link DeviceOutboxSink} bean if there is one, or are only logged otherwise.
+ */
+@Component
+public class DeviceOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceOutboxRelay.class);
+
+    private final DeviceOutboxRepository repository;
+    private final DeviceOutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final Counter relayed;
+
+    public DeviceOutboxRelay(DeviceOutboxRepository repository, ObjectProvider<DeviceOutboxSink> sink,
+                             TransactionTemplate transactionTemplate, OutboxProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.sink = sink.getIfAvailable(LoggingOutboxSink::new);
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.relayed = Counter.builder("devices.outbox.relayed")
+                .description("Device outbox messages delivered to the sink")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${devices.outbox.poll-interval}", initialDelayString = "${devices.outbox.poll-interval}")
+    public void relayPending() {
+        try {
+            int count;
+            do {
+                count = relayBatch();
+            } while (count == properties.batchSize());
+        } catch (RuntimeException e) {
+            log.warn("Relaying device outbox failed, retrying on next poll", e);
+        }
+    }
+
+    /**
+     * Relays one batch and returns the number of messages in it.
+     */
+    public int relayBatch() {
+        Integer count = transactionTemplate.execute(status -> {
+            var messages = repository.claim(properties.batchSize());
+            if (!messages.isEmpty()) {
+                sink.send(messages);
+                repository.deleteAll(messages);
+            }
+            return messages.size();
+        });
+        relayed.increment(count);
+        return count;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.ig.devices.service;
+
+import com.ig.devices.repository.DeviceOutboxRepository.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Delivers relayed device change events to a downstream system, for example a message broker.
+ */
+public interface DeviceOutboxSink {
+
+    /**
+     * Delivers the messages in outbox order. Throwing leaves the whole batch in the outbox to be retried,
+     * so delivery is at least once and consumers should deduplicate by message id.
+     */
+    void send(List<OutboxMessage> messages);
+
+}
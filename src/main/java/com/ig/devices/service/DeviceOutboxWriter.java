@@ -0,0 +1,71 @@
+package com.ig.devices.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.repository.DeviceOutboxRepository;
+import com.ig.devices.repository.DeviceOutboxRepository.OutboxMessage;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every device change event to the outbox in the transaction that made the change. Events of one
+ * transaction are collected and inserted with a single batched statement right before commit.
+ */
+@Component
+public class DeviceOutboxWriter {
+
+    private final DeviceOutboxRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public DeviceOutboxWriter(DeviceOutboxRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onChange(DeviceChangeEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("device changes must be published within a transaction");
+        }
+        pendingMessages().add(new OutboxMessage(null, event.id(), event.type(), serialize(event)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxMessage> pendingMessages() {
+        var pending = (List<OutboxMessage>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        var messages = new ArrayList<OutboxMessage>();
+        TransactionSynchronizationManager.bindResource(this, messages);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                repository.insertAll(messages);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DeviceOutboxWriter.this);
+            }
+        });
+        return messages;
+    }
+
+    private String serialize(DeviceChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.ReadCoalescingProperties;
+import com.ig.devices.config.ReadReplicaDataSource;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.dto.DeviceResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Lets concurrent reads of the same device share one query. A read arriving while a query for its id is in
+ * flight, or within the configured window after it completed, waits for that query instead of issuing its own.
+ * Committed changes of a device end sharing for its id right away, so reads after a write never get older data.
+ * Reads pinned to the primary always issue their own query.
+ */
+@Component
+public class DeviceReadCoalescer {
+
+    private final ConcurrentHashMap<Long, CompletableFuture<DeviceResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ReadCoalescingProperties properties;
+    private final Counter issued;
+    private final Counter coalesced;
+
+    public DeviceReadCoalescer(ReadCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.issued = Counter.builder("devices.get.queries")
+                .description("Device reads by whether they issued a query or shared one in flight")
+                .tag("outcome", "issued")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("devices.get.queries")
+                .description("Device reads by whether they issued a query or shared one in flight")
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public DeviceResponse get(long id, LongFunction<DeviceResponse> loader) {
+        // reads pinned to the primary must not share a query that may have gone to a lagging replica
+        if (!properties.enabled() || ReadReplicaDataSource.isPinnedToPrimary()) {
+            issued.increment();
+            return loader.apply(id);
+        }
+
+        var flight = new CompletableFuture<DeviceResponse>();
+        var existing = inFlight.putIfAbsent(id, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        issued.increment();
+        try {
+            var device = loader.apply(id);
+            flight.complete(device);
+            return device;
+        } catch (Throwable e) {
+            // errors as well, or reads waiting on the flight would hang and it would never be released
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            release(id, flight);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(DeviceChangeEvent event) {
+        inFlight.remove(event.id());
+    }
+
+    private void release(long id, CompletableFuture<DeviceResponse> flight) {
+        var window = properties.window();
+        if (window.isZero() || flight.isCompletedExceptionally()) {
+            inFlight.remove(id, flight);
+        } else {
+            CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS)
+                    .execute(() -> inFlight.remove(id, flight));
+        }
+    }
+
+    private static DeviceResponse await(CompletableFuture<DeviceResponse> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+}
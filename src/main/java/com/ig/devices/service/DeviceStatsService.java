@@ -0,0 +1,67 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.StatsProperties;
+import com.ig.devices.dto.DeviceStatsResponse;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.repository.DeviceCountsRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.TreeMap;
+
+@Service
+@Timed(value = "devices.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class DeviceStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceStatsService.class);
+
+    private final DeviceCountsRepository repository;
+    private final StatsProperties properties;
+
+    public DeviceStatsService(DeviceCountsRepository repository, StatsProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    @Transactional(readOnly = true)
+    public DeviceStatsResponse getStats() {
+        var total = 0L;
+        var byState = new EnumMap<DeviceState, Long>(DeviceState.class);
+        var byBrand = new TreeMap<String, Long>();
+        for (var count : repository.findAll()) {
+            total += count.count();
+            if (!count.state().isEmpty()) {
+                byState.merge(DeviceState.valueOf(count.state()), count.count(), Long::sum);
+            }
+            if (!count.brand().isEmpty()) {
+                byBrand.merge(count.brand(), count.count(), Long::sum);
+            }
+        }
+        return new DeviceStatsResponse(total, byState, byBrand);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${devices.stats.fold-interval}", initialDelayString = "${devices.stats.fold-interval}")
+    public void fold() {
+        repository.fold();
+    }
+
+    /**
+     * Count deltas are recorded by triggers in the same transaction as every device write, so counts only drift if
+     * devices are changed with triggers disabled. Periodically reconciling them bounds such drift. Only one
+     * instance reconciles per interval.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${devices.stats.reconcile-interval}", initialDelayString = "${devices.stats.reconcile-interval}")
+    public void reconcile() {
+        if (repository.reconcile(properties.reconcileInterval())) {
+            log.info("Reconciled device counts");
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.SearchProperties;
+import com.ig.devices.config.SyncProperties;
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.dto.DeviceSyncResponse;
+import com.ig.devices.exception.InvalidRequestException;
+import com.ig.devices.mapper.DeviceMapper;
+import com.ig.devices.repository.DeviceTombstonesRepository;
+import com.ig.devices.repository.DevicesRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+
+@Service
+@Timed(value = "devices.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class DeviceSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceSyncService.class);
+
+    private final DevicesRepository repository;
+    private final DeviceTombstonesRepository tombstonesRepository;
+    private final DeviceMapper mapper;
+    private final SearchProperties searchProperties;
+    private final SyncProperties properties;
+
+    public DeviceSyncService(DevicesRepository repository, DeviceTombstonesRepository tombstonesRepository,
+                             DeviceMapper mapper, SearchProperties searchProperties, SyncProperties properties) {
+        this.repository = repository;
+        this.tombstonesRepository = tombstonesRepository;
+        this.mapper = mapper;
+        this.searchProperties = searchProperties;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the changes and deletions after the watermark, oldest first, or everything if it is null.
+     * <p>
+     * Changes are ordered by the id of the transaction that made them, which is assigned before commit, so a change
+     * may become visible after a later one was already synced. Only changes of transactions older than the oldest
+     * one still running are returned; those can no longer be joined by an earlier change. A long running
+     * transaction therefore delays syncing, but never makes it skip changes.
+     */
+    @Transactional(readOnly = true)
+    public DeviceSyncResponse sync(String watermark, Integer size) {
+        var pageSize = searchProperties.resolvePageSize(size);
+        var since = watermark != null ? DeviceSyncWatermark.decode(watermark) : DeviceSyncWatermark.INITIAL;
+        var now = Instant.now();
+        if (watermark != null && since.issuedAt().isBefore(now.minus(properties.tombstoneRetention()))) {
+            throw new InvalidRequestException("watermark is older than the tombstone retention, sync without it");
+        }
+
+        var untilXid = repository.findCompletedXidHorizon();
+        var changed = repository.findChangedSince(since.xid(), since.id(), untilXid, pageSize + 1);
+        var deleted = tombstonesRepository.findDeletedSince(since.xid(), since.id(), untilXid, pageSize + 1);
+
+        // both lists are in watermark order, merge them and keep the oldest pageSize entries
+        var changedDevices = new ArrayList<DeviceResponse>();
+        var deletedIds = new ArrayList<Long>();
+        var last = since;
+        int nextChanged = 0;
+        int nextDeleted = 0;
+        while (changedDevices.size() + deletedIds.size() < pageSize
+                && (nextChanged < changed.size() || nextDeleted < deleted.size())) {
+            var changedMark = nextChanged < changed.size()
+                    ? new DeviceSyncWatermark(changed.get(nextChanged).getChangeXid(), changed.get(nextChanged).getId(), now)
+                    : null;
+            var deletedMark = nextDeleted < deleted.size()
+                    ? new DeviceSyncWatermark(deleted.get(nextDeleted).changeXid(), deleted.get(nextDeleted).id(), now)
+                    : null;
+            if (deletedMark == null || (changedMark != null && changedMark.compareTo(deletedMark) <= 0)) {
+                changedDevices.add(mapper.toResponse(changed.get(nextChanged++)));
+                last = changedMark;
+            } else {
+                deletedIds.add(deleted.get(nextDeleted++).id());
+                last = deletedMark;
+            }
+        }
+
+        var hasMore = nextChanged < changed.size() || nextDeleted < deleted.size();
+        if (hasMore) {
+            // not caught up yet, deletions since the original watermark are still needed
+            last = last.issuedAt(watermark != null ? since.issuedAt() : now);
+        } else {
+            // everything below the horizon was returned
+            var upperBound = new DeviceSyncWatermark(untilXid - 1, Long.MAX_VALUE, now);
+            last = upperBound.compareTo(last) > 0 ? upperBound : last.issuedAt(now);
+        }
+        return new DeviceSyncResponse(changedDevices, deletedIds, last.encode(), hasMore);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${devices.sync.tombstone-purge-interval}", initialDelayString = "${devices.sync.tombstone-purge-interval}")
+    public void purgeTombstones() {
+        var purged = tombstonesRepository.deleteOlderThan(Instant.now().minus(properties.tombstoneRetention()));
+        log.info("Purged {} device tombstones", purged);
+    }
+
+}
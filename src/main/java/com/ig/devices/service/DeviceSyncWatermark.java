@@ -0,0 +1,45 @@
+package com.ig.devices.service;
+
+import com.ig.devices.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque sync position: the transaction id and device id of the last change a client has seen, and since when the
+ * client has been caught up to it.
+ */
+record DeviceSyncWatermark(long xid, long id, Instant issuedAt) implements Comparable<DeviceSyncWatermark> {
+
+    static final DeviceSyncWatermark INITIAL = new DeviceSyncWatermark(0, 0, Instant.EPOCH);
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((xid + "/" + id + "/" + issuedAt).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static DeviceSyncWatermark decode(String watermark) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8).split("/");
+            if (parts.length != 3) {
+                throw new InvalidRequestException("invalid watermark");
+            }
+            return new DeviceSyncWatermark(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Instant.parse(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            throw new InvalidRequestException("invalid watermark");
+        }
+    }
+
+    DeviceSyncWatermark issuedAt(Instant issuedAt) {
+        return new DeviceSyncWatermark(xid, id, issuedAt);
+    }
+
+    @Override
+    public int compareTo(DeviceSyncWatermark other) {
+        var byXid = Long.compare(xid, other.xid);
+        return byXid != 0 ? byXid : Long.compare(id, other.id);
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.ig.devices.service;
+
+import com.ig.devices.config.BatchProperties;
+import com.ig.devices.config.CacheConfig;
+import com.ig.devices.dto.DeviceBatchItemResult;
+import com.ig.devices.dto.DeviceBatchResponse;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.dto.DeviceCreateOrUpdateRequest;
+import com.ig.devices.dto.DeviceStateTransitionRequest;
+import com.ig.devices.dto.DeviceStateTransitionResponse;
+import com.ig.devices.exception.InvalidRequestException;
+import com.ig.devices.mapper.DeviceMapper;
+import com.ig.devices.model.Device;
+import com.ig.devices.repository.DeviceSpecs;
+import com.ig.devices.repository.DevicesRepository;
+import com.ig.devices.validation.DeviceValidationGroups.CreateOrUpdate;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@Timed(value = "devices.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class DevicesBatchService {
+
+    private final DevicesRepository repository;
+    private final DeviceMapper mapper;
+    private final Validator validator;
+    private final DeviceCountCache countCache;
+    private final CacheManager cacheManager;
+    private final BatchProperties properties;
+    private final ApplicationEventPublisher events;
+
+    public DevicesBatchService(DevicesRepository repository, DeviceMapper mapper, Validator validator,
+                               DeviceCountCache countCache, CacheManager cacheManager, BatchProperties properties,
+                               ApplicationEventPublisher events) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.validator = validator;
+        this.countCache = countCache;
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+        this.events = events;
+    }
+
+    @Transactional
+    public DeviceBatchResponse createAll(List<DeviceCreateOrUpdateRequest> requests) {
+        if (requests.size() > properties.maxSize()) {
+            throw new InvalidRequestException("batch must not contain more than " + properties.maxSize() + " devices");
+        }
+
+        var devices = new ArrayList<Device>(requests.size());
+        var errors = new ArrayList<List<String>>(requests.size());
+        for (var request : requests) {
+            var requestErrors = validate(request);
+            errors.add(requestErrors);
+            devices.add(requestErrors.isEmpty() ? mapper.toModel(request) : null);
+        }
+        repository.saveAll(devices.stream().filter(Objects::nonNull).toList());
+
+        var results = new ArrayList<DeviceBatchItemResult>(requests.size());
+        var created = 0;
+        for (var index = 0; index < requests.size(); index++) {
+            var device = devices.get(index);
+            if (device != null) {
+                var response = mapper.toResponse(device);
+                results.add(DeviceBatchItemResult.created(index, response));
+                events.publishEvent(DeviceChangeEvent.created(response));
+                created++;
+            } else {
+                results.add(DeviceBatchItemResult.rejected(index, errors.get(index)));
+            }
+        }
+        if (created > 0) {
+            countCache.invalidateAll();
+        }
+
+        return new DeviceBatchResponse(created, requests.size() - created, results);
+    }
+
+    /**
+     * Moves all selected devices to the target state with one set-based update. Changing the state is allowed
+     * in every state, including IN_USE, so the only devices rejected are those that do not exist.
+     * <p>
+     * Devices selected by a filter are locked when selected and the update checks the filter again, so a device
+     * a concurrent transaction moved out of the filter is left alone.
+     */
+    @Transactional
+    public DeviceStateTransitionResponse transitionState(DeviceStateTransitionRequest request) {
+        var ids = resolveIds(request);
+        if (ids.isEmpty()) {
+            return new DeviceStateTransitionResponse(List.of(), List.of(), List.of());
+        }
+
+        var idArray = ids.toArray(Long[]::new);
+        var changed = updateState(request, idArray);
+        var existing = new HashSet<>(repository.findExistingIds(idArray));
+
+        var cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DEVICES));
+        var affected = new HashSet<Long>();
+        for (var device : changed) {
+            var response = mapper.toResponse(device);
+            affected.add(device.getId());
+            cache.put(device.getId(), response);
+            events.publishEvent(DeviceChangeEvent.updated(response));
+        }
+        if (!affected.isEmpty()) {
+            countCache.invalidateAll();
+        }
+
+        var affectedIds = new ArrayList<Long>();
+        var unchangedIds = new ArrayList<Long>();
+        var rejectedIds = new ArrayList<Long>();
+        for (var id : ids) {
+            if (affected.contains(id)) {
+                affectedIds.add(id);
+            } else if (existing.contains(id)) {
+                unchangedIds.add(id);
+            } else {
+                rejectedIds.add(id);
+            }
+        }
+        return new DeviceStateTransitionResponse(affectedIds, unchangedIds, rejectedIds);
+    }
+
+    private List<Device> updateState(DeviceStateTransitionRequest request, Long[] ids) {
+        var targetState = request.targetState().name();
+        if (request.filter() == null) {
+            return repository.updateStateIn(ids, targetState, Instant.now());
+        }
+        var filter = request.filter().normalized();
+        return repository.updateStateInMatching(ids,
+                filter.brand(),
+                filter.state() != null ? filter.state().name() : null,
+                filter.name() != null ? DeviceSpecs.prefixPattern(filter.name()) : null,
+                filter.q() != null ? DeviceSpecs.containsPattern(filter.q()) : null,
+                targetState, Instant.now());
+    }
+
+    private List<Long> resolveIds(DeviceStateTransitionRequest request) {
+        if ((request.ids() == null) == (request.filter() == null)) {
+            throw new InvalidRequestException("exactly one of ids and filter must be set");
+        }
+        if (request.ids() != null) {
+            if (request.ids().size() > properties.maxSize()) {
+                throw new InvalidRequestException("ids must not contain more than " + properties.maxSize() + " elements");
+            }
+            return request.ids().stream().filter(Objects::nonNull).distinct().sorted().toList();
+        }
+
+        var ids = repository.findIds(DeviceSpecs.fromSearchParams(request.filter()), properties.maxSize() + 1);
+        if (ids.size() > properties.maxSize()) {
+            throw new InvalidRequestException("filter must not match more than " + properties.maxSize() + " devices");
+        }
+        return ids;
+    }
+
+    private List<String> validate(DeviceCreateOrUpdateRequest request) {
+        if (request == null) {
+            return List.of("device must not be null");
+        }
+        return validator.validate(request, CreateOrUpdate.class).stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .toList();
+    }
+
+}
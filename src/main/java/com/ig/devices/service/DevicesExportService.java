@@ -0,0 +1,98 @@
+package com.ig.devices.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ig.devices.config.ExportProperties;
+import com.ig.devices.dto.DeviceExportFormat;
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.mapper.DeviceMapper;
+import com.ig.devices.model.Device;
+import com.ig.devices.model.Device_;
+import com.ig.devices.repository.DeviceSpecs;
+import com.ig.devices.repository.DevicesRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+@Service
+@Timed(value = "devices.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class DevicesExportService {
+
+    private static final String CSV_HEADER = "id,name,brand,state";
+
+    private final DevicesRepository repository;
+    private final DeviceMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+
+    public DevicesExportService(DevicesRepository repository, DeviceMapper mapper, ObjectMapper objectMapper,
+                                ExportProperties properties) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(DeviceSearchParams params, DeviceExportFormat format, OutputStream out) throws IOException {
+        var spec = DeviceSpecs.fromSearchParams(params);
+        try (var devices = repository.streamAll(spec, Sort.by(Device_.ID), properties.fetchSize())) {
+            switch (format) {
+                case NDJSON -> writeNdjson(devices.iterator(), out);
+                case CSV -> writeCsv(devices.iterator(), out);
+            }
+        }
+    }
+
+    private void writeNdjson(Iterator<Device> devices, OutputStream out) throws IOException {
+        var buffered = new BufferedOutputStream(out);
+        var writer = objectMapper.writerFor(DeviceResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        while (devices.hasNext()) {
+            writer.writeValue(buffered, mapper.toResponse(devices.next()));
+            buffered.write('\n');
+        }
+        buffered.flush();
+    }
+
+    private void writeCsv(Iterator<Device> devices, OutputStream out) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (devices.hasNext()) {
+            var device = mapper.toResponse(devices.next());
+            writer.write(String.valueOf(device.id()));
+            writer.write(',');
+            writer.write(csvField(device.name()));
+            writer.write(',');
+            writer.write(csvField(device.brand()));
+            writer.write(',');
+            writer.write(device.state() != null ? device.state().name() : "");
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+}
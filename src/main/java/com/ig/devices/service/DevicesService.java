@@ -1,71 +1,212 @@
 package com.ig.devices.service;
 
+import com.ig.devices.config.CacheConfig;
+import com.ig.devices.config.LookupProperties;
+import com.ig.devices.config.SearchProperties;
+import com.ig.devices.dto.DeviceChangeEvent;
 import com.ig.devices.dto.DeviceCreateOrUpdateRequest;
+import com.ig.devices.dto.DeviceLookupResponse;
 import com.ig.devices.dto.DeviceResponse;
 import com.ig.devices.dto.DeviceSearchParams;
 import com.ig.devices.dto.DevicesPageResponse;
 import com.ig.devices.exception.DeviceStateValidationException;
+import com.ig.devices.exception.InvalidRequestException;
+import com.ig.devices.exception.PreconditionFailedException;
 import com.ig.devices.mapper.DeviceMapper;
-import com.ig.devices.model.Device;
-import com.ig.devices.model.DeviceState;
+import com.ig.devices.model.Device_;
 import com.ig.devices.repository.DeviceSpecs;
 import com.ig.devices.repository.DevicesRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
 @Service
+@Timed(value = "devices.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class DevicesService {
 
     private final DevicesRepository repository;
     private final DeviceMapper mapper;
+    private final SearchProperties searchProperties;
+    private final DeviceCountCache countCache;
+    private final ApplicationEventPublisher events;
+    private final CacheManager cacheManager;
+    private final LookupProperties lookupProperties;
+    private final DeviceReadCoalescer readCoalescer;
 
-    public DevicesService(DevicesRepository repository, DeviceMapper mapper) {
+    public DevicesService(DevicesRepository repository, DeviceMapper mapper, SearchProperties searchProperties,
+                          DeviceCountCache countCache, ApplicationEventPublisher events, CacheManager cacheManager,
+                          LookupProperties lookupProperties, DeviceReadCoalescer readCoalescer) {
         this.repository = repository;
         this.mapper = mapper;
+        this.searchProperties = searchProperties;
+        this.countCache = countCache;
+        this.events = events;
+        this.cacheManager = cacheManager;
+        this.lookupProperties = lookupProperties;
+        this.readCoalescer = readCoalescer;
     }
 
+    @Transactional
     public DeviceResponse create(DeviceCreateOrUpdateRequest request) {
         var device = mapper.toModel(request);
-        return mapper.toResponse(repository.save(device));
+        var response = mapper.toResponse(repository.save(device));
+        countCache.invalidateAll();
+        events.publishEvent(DeviceChangeEvent.created(response));
+        return response;
     }
 
+    /**
+     * Not transactional itself: reads waiting for a coalesced query must not hold a connection, so the
+     * transaction is the one of the repository query.
+     */
+    @Cacheable(cacheNames = CacheConfig.DEVICES, key = "#id")
     public DeviceResponse get(Long id) {
-        return mapper.toResponse(getById(id));
+        return readCoalescer.get(id,
+                deviceId -> repository.findResponseById(deviceId).orElseThrow(EntityNotFoundException::new));
+    }
+
+    /**
+     * Gets many devices at once. Devices found in the cache are not queried again; the rest are loaded with one
+     * query per chunk of ids and cached like single gets.
+     */
+    @Transactional(readOnly = true)
+    public DeviceLookupResponse lookup(List<Long> ids) {
+        if (ids.size() > lookupProperties.maxIds()) {
+            throw new InvalidRequestException("ids must not contain more than " + lookupProperties.maxIds() + " elements");
+        }
+
+        var requested = ids.stream().filter(Objects::nonNull).distinct().toList();
+        var cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DEVICES));
+        var found = new HashMap<Long, DeviceResponse>(requested.size());
+        var toLoad = new ArrayList<Long>();
+        for (var id : requested) {
+            var cached = cache.get(id, DeviceResponse.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        var chunkSize = lookupProperties.chunkSize();
+        for (var from = 0; from < toLoad.size(); from += chunkSize) {
+            var chunk = toLoad.subList(from, Math.min(from + chunkSize, toLoad.size()));
+            for (var device : repository.findResponsesByIdIn(chunk)) {
+                found.put(device.id(), device);
+                cache.put(device.id(), device);
+            }
+        }
+
+        var devices = new ArrayList<DeviceResponse>(found.size());
+        var missingIds = new ArrayList<Long>();
+        for (var id : requested) {
+            var device = found.get(id);
+            if (device != null) {
+                devices.add(device);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new DeviceLookupResponse(devices, missingIds);
+    }
+
+    public long getVersion(Long id) {
+        return repository.findVersionById(id).orElseThrow(EntityNotFoundException::new);
     }
 
+    @Transactional(readOnly = true)
     public DevicesPageResponse search(DeviceSearchParams params, Pageable pageable) {
         var spec = DeviceSpecs.fromSearchParams(params);
-        return mapper.toDevicesPageResponse(repository.findAll(spec, pageable).map(mapper::toResponse));
+        var slice = repository.findResponseSlice(spec, pageable);
+        var page = PageableExecutionUtils.getPage(slice.getContent(), pageable,
+                () -> countCache.get(params, () -> repository.count(spec)));
+        return mapper.toDevicesPageResponse(page);
     }
 
-    @Transactional
-    public DeviceResponse update(Long id, DeviceCreateOrUpdateRequest request) {
-        var device = getById(id);
+    @Transactional(readOnly = true)
+    public DevicesPageResponse searchSlice(DeviceSearchParams params, Pageable pageable) {
+        var spec = DeviceSpecs.fromSearchParams(params);
+        return mapper.toDevicesSliceResponse(repository.findResponseSlice(spec, pageable));
+    }
 
-        if (device.getState() == DeviceState.IN_USE) {
-            if ((StringUtils.hasText(request.name()) && !device.getName().equals(request.name()))
-                    || (StringUtils.hasText(request.brand()) && !device.getBrand().equals(request.brand()))) {
-                throw new DeviceStateValidationException("cannot update name and/or brand while device is in IN_USE state");
-            }
+    @Transactional(readOnly = true)
+    public DevicesPageResponse scroll(DeviceSearchParams params, String after, Integer size) {
+        var pageSize = searchProperties.resolvePageSize(size);
+        var spec = DeviceSpecs.fromSearchParams(params);
+        if (after != null) {
+            spec = spec.and(DeviceSpecs.idGreaterThan(DeviceCursor.decode(after)));
         }
-        mapper.updateModelFromRequest(request, device);
-        repository.save(device);
 
-        return mapper.toResponse(device);
+        var slice = repository.findResponseSlice(spec, PageRequest.of(0, pageSize, Sort.by(Device_.ID)));
+        var content = slice.getContent();
+        var nextCursor = slice.hasNext() ? DeviceCursor.encode(content.getLast().id()) : null;
+        return new DevicesPageResponse(content, 0, pageSize, null, null, slice.hasNext(), nextCursor);
     }
 
-    public void delete(Long id) {
-        var device = getById(id);
-        if (device.getState() == DeviceState.IN_USE) {
-            throw new DeviceStateValidationException("cannot delete device in IN_USE state");
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.DEVICES, key = "#id")
+    public DeviceResponse update(Long id, DeviceCreateOrUpdateRequest request, List<Long> expectedVersions) {
+        var device = repository.updateIfAllowed(id,
+                        request.name(),
+                        request.brand(),
+                        request.state() != null ? request.state().name() : null,
+                        StringUtils.hasText(request.name()) ? request.name() : null,
+                        StringUtils.hasText(request.brand()) ? request.brand() : null,
+                        expectedVersions == null,
+                        toArray(expectedVersions),
+                        Instant.now())
+                .orElseThrow(() -> rejection(id, expectedVersions, "update_in_use",
+                        "cannot update name and/or brand while device is in IN_USE state"));
+        countCache.invalidateAll();
+
+        var response = mapper.toResponse(device);
+        events.publishEvent(DeviceChangeEvent.updated(response));
+        return response;
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.DEVICES, key = "#id")
+    public void delete(Long id, List<Long> expectedVersions) {
+        if (repository.deleteIfNotInUse(id, expectedVersions == null, toArray(expectedVersions)) == 0) {
+            throw rejection(id, expectedVersions, "delete_in_use", "cannot delete device in IN_USE state");
+        }
+        countCache.invalidateAll();
+        events.publishEvent(DeviceChangeEvent.deleted(id));
+    }
+
+    /**
+     * Tells apart why a guarded statement did not match: the device is missing, has none of the expected
+     * versions or is in IN_USE state.
+     */
+    private RuntimeException rejection(Long id, List<Long> expectedVersions, String reason, String message) {
+        var version = repository.findVersionById(id);
+        if (version.isEmpty()) {
+            return new EntityNotFoundException();
+        }
+        if (expectedVersions != null && !expectedVersions.contains(version.get())) {
+            return new PreconditionFailedException("device version " + version.get() + " does not match If-Match");
         }
-        repository.delete(device);
+        return new DeviceStateValidationException(reason, message);
     }
 
-    private Device getById(Long id) {
-        return repository.findById(id).orElseThrow(EntityNotFoundException::new);
+    private static Long[] toArray(List<Long> versions) {
+        return versions != null ? versions.toArray(Long[]::new) : new Long[0];
     }
 }
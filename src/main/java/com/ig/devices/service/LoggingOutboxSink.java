@@ -0,0 +1,23 @@
+package com.ig.devices.service;
+
+import com.ig.devices.repository.DeviceOutboxRepository.OutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Sink used when no {@link DeviceOutboxSink} bean is configured. Only logs the messages.
+ */
+public class LoggingOutboxSink implements DeviceOutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public void send(List<OutboxMessage> messages) {
+        for (var message : messages) {
+            log.debug("Device outbox message {}: {} {}", message.id(), message.type(), message.payload());
+        }
+    }
+
+}
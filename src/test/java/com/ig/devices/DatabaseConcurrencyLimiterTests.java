@@ -0,0 +1,118 @@
+package com.ig.devices;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ig.devices.config.ConcurrencyLimitProperties;
+import com.ig.devices.config.DatabaseConcurrencyLimitFilter;
+import com.ig.devices.config.DatabaseConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseConcurrencyLimiterTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DatabaseConcurrencyLimiter limiter;
+    private DatabaseConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new DatabaseConcurrencyLimiter(
+                new ConcurrencyLimitProperties(true, 2, Duration.ofMillis(50)), meterRegistry);
+        filter = new DatabaseConcurrencyLimitFilter(limiter, new ObjectMapper(), Set.of("/devices/changes"));
+    }
+
+    @Test
+    void shouldTimeOutWhenAllPermitsAreTaken() {
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldReleasePermitAfterRequest() throws Exception {
+        var permitsDuringRequest = new double[1];
+        FilterChain chain = (request, response) -> permitsDuringRequest[0] = availablePermits();
+
+        filter.doFilter(request("/devices"), new MockHttpServletResponse(), chain);
+
+        assertThat(permitsDuringRequest[0]).isEqualTo(1);
+        assertThat(availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReleasePermitWhenRequestFails() {
+        FilterChain chain = (request, response) -> {
+            throw new IllegalStateException("query failed");
+        };
+
+        assertThatThrownBy(() -> filter.doFilter(request("/devices"), new MockHttpServletResponse(), chain))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldHoldPermitUntilAsyncRequestCompletes() throws Exception {
+        var request = request("/devices/export");
+        request.setAsyncSupported(true);
+        FilterChain chain = (req, res) -> req.startAsync();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(availablePermits()).isEqualTo(1);
+
+        request.getAsyncContext().complete();
+        assertThat(availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectWithServiceUnavailableWhenAllPermitsAreTaken() throws Exception {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        var chain = new MockFilterChain();
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/devices"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("too many concurrent requests");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(availablePermits()).isZero();
+    }
+
+    @Test
+    void shouldNotLimitExcludedPaths() throws Exception {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        var chain = new MockFilterChain();
+
+        filter.doFilter(request("/devices/changes"), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(availablePermits()).isZero();
+    }
+
+    private double availablePermits() {
+        return meterRegistry.get("devices.db.limiter.available").gauge().value();
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.ig.devices;
+
+import com.ig.devices.config.CacheInvalidationProperties;
+import com.ig.devices.config.DeviceCacheFence;
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.model.DeviceState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceCacheFenceTests {
+
+    private final DeviceCacheFence fence = new DeviceCacheFence(
+            new CacheInvalidationProperties(true, Duration.ofMillis(50), Duration.ofSeconds(5), Duration.ofMillis(200)));
+
+    @Test
+    void shouldRefusePutsBelowNotifiedVersion() {
+        fence.fence(1L, 2L);
+
+        assertThat(fence.admits(1L, device(1L, 1L))).isFalse();
+        assertThat(fence.admits(1L, device(1L, 2L))).isTrue();
+        assertThat(fence.admits(1L, device(1L, 3L))).isTrue();
+        assertThat(fence.admits(2L, device(2L, 1L))).isTrue();
+    }
+
+    @Test
+    void shouldRefuseAllPutsOfDeviceFencedAtAnyVersion() {
+        fence.fence(1L, Long.MAX_VALUE);
+
+        assertThat(fence.admits(1L, device(1L, 5L))).isFalse();
+    }
+
+    @Test
+    void shouldAdmitPutsAgainAfterWindow() throws Exception {
+        fence.fence(1L, 2L);
+        fence.fenceAll();
+        assertThat(fence.admits(2L, device(2L, 1L))).isFalse();
+
+        Thread.sleep(300);
+
+        assertThat(fence.admits(1L, device(1L, 2L))).isTrue();
+        assertThat(fence.admits(2L, device(2L, 1L))).isTrue();
+    }
+
+    private static DeviceResponse device(Long id, Long version) {
+        return new DeviceResponse(id, "name", "brand", DeviceState.AVAILABLE, version);
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.ig.devices;
+
+import com.ig.devices.config.HeartbeatProperties;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.dto.DeviceStateTransitionRequest;
+import com.ig.devices.dto.DeviceStateTransitionResponse;
+import com.ig.devices.exception.ServiceOverloadedException;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.service.DeviceHeartbeatBuffer;
+import com.ig.devices.service.DevicesBatchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceHeartbeatBufferTests {
+
+    private DevicesBatchService batchService;
+    private DeviceHeartbeatBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        batchService = mock(DevicesBatchService.class);
+        when(batchService.transitionState(any())).thenAnswer(invocation -> {
+            DeviceStateTransitionRequest request = invocation.getArgument(0);
+            return new DeviceStateTransitionResponse(request.ids(), List.of(), List.of());
+        });
+        buffer = new DeviceHeartbeatBuffer(batchService,
+                new HeartbeatProperties(Duration.ofSeconds(1), 2, 2, Duration.ofMinutes(1), 1000),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldCoalesceReportsAndWriteOneTransitionPerState() {
+        buffer.report(1, DeviceState.AVAILABLE);
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.report(2, DeviceState.IN_USE);
+        buffer.flush();
+
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(1L, 2L), null, DeviceState.IN_USE));
+        verify(batchService, never()).transitionState(
+                new DeviceStateTransitionRequest(List.of(1L), null, DeviceState.AVAILABLE));
+    }
+
+    @Test
+    void shouldDropReportsOfUnchangedState() {
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.flush();
+        clearInvocations(batchService);
+
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.flush();
+
+        verify(batchService, never()).transitionState(any());
+    }
+
+    @Test
+    void shouldRejectReportsOfNewDevicesWhenFull() {
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.report(2, DeviceState.IN_USE);
+        buffer.report(2, DeviceState.INACTIVE);
+
+        assertThatThrownBy(() -> buffer.report(3, DeviceState.IN_USE))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        buffer.flush();
+        buffer.report(3, DeviceState.IN_USE);
+    }
+
+    @Test
+    void shouldFlushInChunks() {
+        buffer = new DeviceHeartbeatBuffer(batchService,
+                new HeartbeatProperties(Duration.ofSeconds(1), 10, 2, Duration.ofMinutes(1), 1000),
+                new SimpleMeterRegistry());
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.report(2, DeviceState.IN_USE);
+        buffer.report(3, DeviceState.IN_USE);
+        buffer.flush();
+
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(1L, 2L), null, DeviceState.IN_USE));
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(3L), null, DeviceState.IN_USE));
+    }
+
+    @Test
+    void shouldDropReportsOfUnknownDevices() {
+        when(batchService.transitionState(any())).thenAnswer(invocation -> {
+            DeviceStateTransitionRequest request = invocation.getArgument(0);
+            return new DeviceStateTransitionResponse(List.of(), List.of(), request.ids());
+        });
+        buffer.report(98, DeviceState.IN_USE);
+        buffer.report(99, DeviceState.IN_USE);
+        buffer.flush();
+        clearInvocations(batchService);
+
+        buffer.report(98, DeviceState.INACTIVE);
+        buffer.report(99, DeviceState.INACTIVE);
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.report(2, DeviceState.IN_USE);
+        buffer.flush();
+        buffer.flush();
+
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(1L, 2L), null, DeviceState.IN_USE));
+        verify(batchService, never()).transitionState(
+                new DeviceStateTransitionRequest(List.of(98L, 99L), null, DeviceState.INACTIVE));
+    }
+
+    @Test
+    void shouldAcceptReportsOfUnknownDevicesOnceCreated() {
+        when(batchService.transitionState(any())).thenAnswer(invocation -> {
+            DeviceStateTransitionRequest request = invocation.getArgument(0);
+            return new DeviceStateTransitionResponse(List.of(), List.of(), request.ids());
+        });
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.flush();
+        clearInvocations(batchService);
+
+        buffer.onChange(DeviceChangeEvent.created(
+                new DeviceResponse(1L, "name1", "brand1", DeviceState.AVAILABLE, 0L)));
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.flush();
+
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(1L), null, DeviceState.IN_USE));
+    }
+
+    @Test
+    void shouldRequeueReportsWhenFlushFails() {
+        when(batchService.transitionState(any())).thenThrow(new IllegalStateException("database is down"));
+        buffer.report(1, DeviceState.IN_USE);
+        buffer.flush();
+        clearInvocations(batchService);
+
+        buffer.flush();
+
+        verify(batchService).transitionState(new DeviceStateTransitionRequest(List.of(1L), null, DeviceState.IN_USE));
+    }
+
+}
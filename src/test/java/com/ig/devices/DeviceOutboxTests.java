@@ -0,0 +1,118 @@
+package com.ig.devices;
+
+import com.ig.devices.dto.DeviceChangeType;
+import com.ig.devices.dto.DeviceCreateOrUpdateRequest;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.repository.DeviceOutboxRepository.OutboxMessage;
+import com.ig.devices.service.DeviceOutboxRelay;
+import com.ig.devices.service.DeviceOutboxSink;
+import com.ig.devices.service.DevicesBatchService;
+import com.ig.devices.service.DevicesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import({TestcontainersConfiguration.class, DeviceOutboxTests.RecordingSinkConfiguration.class})
+@SpringBootTest(properties = {"devices.outbox.poll-interval=1h", "devices.outbox.batch-size=2"})
+class DeviceOutboxTests {
+
+    @Autowired
+    private DevicesService service;
+
+    @Autowired
+    private DevicesBatchService batchService;
+
+    @Autowired
+    private DeviceOutboxRelay relay;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void cleanDb() {
+        jdbcTemplate.execute("TRUNCATE TABLE devices, device_outbox RESTART IDENTITY CASCADE");
+        sink.messages.clear();
+        sink.failing = false;
+    }
+
+    @Test
+    void shouldWriteChangesToOutboxAndRelayThemInBatches() {
+        var device = service.create(new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE));
+        service.update(device.id(), new DeviceCreateOrUpdateRequest(null, null, DeviceState.INACTIVE), null);
+        batchService.createAll(List.of(
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.AVAILABLE),
+                new DeviceCreateOrUpdateRequest("name3", "brand2", DeviceState.AVAILABLE)));
+        service.delete(device.id(), null);
+        assertThat(outboxSize()).isEqualTo(5);
+
+        assertThat(relay.relayBatch()).isEqualTo(2);
+        assertThat(outboxSize()).isEqualTo(3);
+
+        relay.relayPending();
+        assertThat(outboxSize()).isZero();
+        assertThat(sink.messages).extracting(OutboxMessage::type).containsExactly(
+                DeviceChangeType.CREATED, DeviceChangeType.UPDATED,
+                DeviceChangeType.CREATED, DeviceChangeType.CREATED,
+                DeviceChangeType.DELETED);
+        assertThat(sink.messages.getFirst().deviceId()).isEqualTo(device.id());
+        assertThat(sink.messages.getFirst().payload()).contains("\"name\": \"name1\"");
+    }
+
+    @Test
+    void shouldKeepMessagesInOutboxWhenSinkFails() {
+        service.create(new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE));
+        sink.failing = true;
+
+        relay.relayPending();
+        assertThat(outboxSize()).isEqualTo(1);
+        assertThat(sink.messages).isEmpty();
+
+        sink.failing = false;
+        relay.relayPending();
+        assertThat(outboxSize()).isZero();
+        assertThat(sink.messages).hasSize(1);
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM device_outbox", Integer.class);
+    }
+
+    static class RecordingSink implements DeviceOutboxSink {
+
+        final List<OutboxMessage> messages = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        @Override
+        public void send(List<OutboxMessage> batch) {
+            if (failing) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            messages.addAll(batch);
+        }
+
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class RecordingSinkConfiguration {
+
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.ig.devices;
+
+import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.model.Device;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.repository.DeviceSpecs;
+import com.ig.devices.repository.DevicesRepository;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Explains the SQL Hibernate actually generates for the search filters, with the bound values, against a table
+ * large enough for the planner to prefer indexes where they pay off. Planner settings are left at their defaults.
+ */
+@Import({TestcontainersConfiguration.class, DeviceQueryPlanTests.QueryCaptureConfig.class})
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceQueryPlanTests {
+
+    private static final int DEVICES = 200_000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DevicesRepository repository;
+
+    @Autowired
+    private QueryCapture queryCapture;
+
+    @BeforeAll
+    void seedDb() throws Exception {
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE devices RESTART IDENTITY CASCADE");
+            // skips the row triggers maintaining counts, notifications and tombstones, which plans do not depend on
+            stmt.execute("SET session_replication_role = replica");
+            stmt.execute("""
+                    INSERT INTO devices (id, name, brand, state, created_at, updated_at)
+                    SELECT nextval('devices_seq'), 'name' || i, 'brand' || (i % 1000),
+                           (ARRAY['AVAILABLE', 'IN_USE', 'INACTIVE'])[i % 3 + 1],
+                           now() - i * INTERVAL '1 second', now()
+                    FROM generate_series(1, %d) AS i
+                    """.formatted(DEVICES));
+            stmt.execute("RESET session_replication_role");
+            stmt.execute("ANALYZE devices");
+        }
+    }
+
+    static Stream<Arguments> searches() {
+        var byId = PageRequest.of(0, 100, Sort.by("id"));
+        return Stream.of(
+                Arguments.of("brand", slice(new DeviceSearchParams("brand1", null), byId)),
+                Arguments.of("state", slice(new DeviceSearchParams(null, DeviceState.IN_USE), byId)),
+                Arguments.of("brand and state", slice(new DeviceSearchParams("brand1", DeviceState.IN_USE), byId)),
+                Arguments.of("created at", slice(new DeviceSearchParams(null, null),
+                        PageRequest.of(0, 100, Sort.by("createdAt", "id")))),
+                Arguments.of("name prefix", slice(new DeviceSearchParams(null, null, "name1234", null), byId)),
+                Arguments.of("text", slice(new DeviceSearchParams(null, null, null, "ame1234"), PageRequest.of(0, 100))),
+                Arguments.of("scroll", (Consumer<DevicesRepository>) repository -> repository.findResponseSlice(
+                        DeviceSpecs.fromSearchParams(new DeviceSearchParams("brand1", null))
+                                .and(DeviceSpecs.idGreaterThan(50_000L)), byId)),
+                Arguments.of("ids", (Consumer<DevicesRepository>) repository -> repository.findIds(
+                        DeviceSpecs.fromSearchParams(new DeviceSearchParams("brand1", DeviceState.IN_USE)), 10_001)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("searches")
+    void shouldUseIndexForSearch(String name, Consumer<DevicesRepository> search) throws Exception {
+        var queries = queryCapture.capture(() -> search.accept(repository));
+        assertThat(queries).hasSize(1);
+
+        var plan = explain(queries.getFirst());
+        assertThat(plan)
+                .doesNotContain("Seq Scan")
+                .containsPattern("Index.* on (idx_devices_|devices_pkey)");
+    }
+
+    private String explain(CapturedQuery query) throws Exception {
+        var plan = new ArrayList<String>();
+        try (var conn = dataSource.getConnection(); var stmt = conn.prepareStatement("EXPLAIN " + query.sql())) {
+            for (var index = 0; index < query.parameters().size(); index++) {
+                stmt.setObject(index + 1, query.parameters().get(index));
+            }
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString(1));
+                }
+            }
+        }
+        return String.join("\n", plan);
+    }
+
+    private static Consumer<DevicesRepository> slice(DeviceSearchParams params, PageRequest pageable) {
+        Specification<Device> spec = DeviceSpecs.fromSearchParams(params);
+        return repository -> repository.findResponseSlice(spec, pageable);
+    }
+
+    record CapturedQuery(String sql, List<Object> parameters) {
+    }
+
+    /**
+     * Records the statements, with their bound values, executed on the calling thread while capturing.
+     * Picked up by the datasource-micrometer proxy like any {@link QueryExecutionListener} bean.
+     */
+    static class QueryCapture implements QueryExecutionListener {
+
+        private final ThreadLocal<List<CapturedQuery>> captured = new ThreadLocal<>();
+
+        List<CapturedQuery> capture(Runnable action) {
+            var queries = new ArrayList<CapturedQuery>();
+            captured.set(queries);
+            try {
+                action.run();
+            } finally {
+                captured.remove();
+            }
+            return queries;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            var queries = captured.get();
+            if (queries == null) {
+                return;
+            }
+            for (var queryInfo : queryInfoList) {
+                var operations = queryInfo.getParametersList().isEmpty()
+                        ? List.<ParameterSetOperation>of()
+                        : queryInfo.getParametersList().getFirst();
+                var parameters = operations.stream()
+                        .sorted(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]))
+                        .map(operation -> operation.getArgs()[1])
+                        .toList();
+                queries.add(new CapturedQuery(queryInfo.getQuery(), parameters));
+            }
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class QueryCaptureConfig {
+
+        @Bean
+        QueryCapture queryCapture() {
+            return new QueryCapture();
+        }
+
+    }
+
+}
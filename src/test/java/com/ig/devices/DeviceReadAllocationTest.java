@@ -0,0 +1,139 @@
+package com.ig.devices;
+
+import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.mapper.DeviceMapper;
+import com.ig.devices.repository.DeviceSpecs;
+import com.ig.devices.repository.DevicesRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Allocation harness for the read paths, run with {@code ./gradlew allocationTest}. Measures the bytes allocated
+ * per call on the calling thread by loading managed entities and mapping them, as reads did before, and by
+ * projecting straight into responses in read-only transactions, as they do now. The device cache is bypassed.
+ */
+@Tag("allocation")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class DeviceReadAllocationTest {
+
+    private static final int DEVICES = Integer.getInteger("allocationTest.devices", 100_000);
+    private static final int WARMUP = Integer.getInteger("allocationTest.warmup", 2_000);
+    private static final int ITERATIONS = Integer.getInteger("allocationTest.iterations", 5_000);
+    private static final String REPORT_DIR = System.getProperty("allocationTest.reportDir", "build/reports/allocation");
+    private static final int PAGE_SIZE = 20;
+    private static final int LOOKUP_SIZE = 100;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DevicesRepository repository;
+
+    @Autowired
+    private DeviceMapper mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readPaths() throws Exception {
+        var lookupIds = seed();
+        var id = lookupIds.getFirst();
+        var readWrite = new TransactionTemplate(transactionManager);
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        var spec = DeviceSpecs.fromSearchParams(new DeviceSearchParams("brand1", null));
+        var page = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+
+        var results = new LinkedHashMap<String, long[]>();
+        results.put("get", new long[]{
+                measure(() -> readWrite.execute(status -> repository.findById(id).map(mapper::toResponse))),
+                measure(() -> readOnly.execute(status -> repository.findResponseById(id)))});
+        results.put("search page of " + PAGE_SIZE, new long[]{
+                measure(() -> readWrite.execute(status -> repository.findBy(spec,
+                        query -> query.sortBy(page.getSort()).limit(PAGE_SIZE + 1).all()).stream()
+                        .map(mapper::toResponse).toList())),
+                measure(() -> readOnly.execute(status -> repository.findResponseSlice(spec, page)))});
+        results.put("lookup of " + LOOKUP_SIZE, new long[]{
+                measure(() -> readWrite.execute(status -> repository.findAllById(lookupIds).stream()
+                        .map(mapper::toResponse).toList())),
+                measure(() -> readOnly.execute(status -> repository.findResponsesByIdIn(lookupIds)))});
+
+        var report = report(results);
+        System.out.println(report);
+        Files.createDirectories(Path.of(REPORT_DIR));
+        Files.writeString(Path.of(REPORT_DIR, "summary.txt"), report);
+    }
+
+    /**
+     * @return the ids of the first devices, to look up
+     */
+    private List<Long> seed() throws Exception {
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE devices RESTART IDENTITY CASCADE");
+            // skips the row triggers, which the measured reads do not depend on
+            stmt.execute("SET session_replication_role = replica");
+            stmt.execute("""
+                    INSERT INTO devices (id, name, brand, state, created_at, updated_at)
+                    SELECT nextval('devices_seq'), 'name' || i, 'brand' || (i % 1000),
+                           (ARRAY['AVAILABLE', 'IN_USE', 'INACTIVE'])[i % 3 + 1], now(), now()
+                    FROM generate_series(1, %d) AS i
+                    """.formatted(DEVICES));
+            stmt.execute("RESET session_replication_role");
+            stmt.execute("ANALYZE devices");
+            var ids = new ArrayList<Long>();
+            try (var rs = stmt.executeQuery("SELECT id FROM devices ORDER BY id LIMIT " + LOOKUP_SIZE)) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * @return bytes allocated per call on this thread, after warming up
+     */
+    private long measure(Supplier<?> read) {
+        for (var i = 0; i < WARMUP; i++) {
+            read.get();
+        }
+        var threadId = Thread.currentThread().threadId();
+        var before = threads.getThreadAllocatedBytes(threadId);
+        for (var i = 0; i < ITERATIONS; i++) {
+            read.get();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private static String report(Map<String, long[]> results) {
+        var report = new StringBuilder();
+        report.append(String.format("%-22s %16s %16s %8s%n", "read", "entities B/op", "projection B/op", "change"));
+        results.forEach((read, bytes) -> report.append(String.format("%-22s %16d %16d %7.1f%%%n",
+                read, bytes[0], bytes[1], 100.0 * (bytes[1] - bytes[0]) / bytes[0])));
+        return report.toString();
+    }
+
+}
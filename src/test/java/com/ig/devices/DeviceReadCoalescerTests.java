@@ -0,0 +1,162 @@
+package com.ig.devices;
+
+import com.ig.devices.config.ReadCoalescingProperties;
+import com.ig.devices.config.ReadReplicaDataSource;
+import com.ig.devices.dto.DeviceChangeEvent;
+import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.model.DeviceState;
+import com.ig.devices.service.DeviceReadCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeviceReadCoalescerTests {
+
+    private static final DeviceResponse DEVICE = new DeviceResponse(1L, "name1", "brand1", DeviceState.AVAILABLE, 0L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldShareInFlightQueryBetweenConcurrentReads() throws Exception {
+        var coalescer = new DeviceReadCoalescer(new ReadCoalescingProperties(true, Duration.ZERO), meterRegistry);
+        var queries = new AtomicInteger();
+        var release = new CountDownLatch(1);
+
+        var results = new ArrayList<Future<DeviceResponse>>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> coalescer.get(1L, id -> {
+                    queries.incrementAndGet();
+                    await(release);
+                    return DEVICE;
+                })));
+            }
+            while (count("coalesced") < 9) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (var result : results) {
+                assertThat(result.get()).isEqualTo(DEVICE);
+            }
+        }
+
+        assertThat(queries).hasValue(1);
+        assertThat(count("issued")).isEqualTo(1);
+
+        coalescer.get(1L, id -> DEVICE);
+        assertThat(count("issued")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldShareResultWithinWindowUntilDeviceChanges() {
+        var coalescer = new DeviceReadCoalescer(new ReadCoalescingProperties(true, Duration.ofMinutes(1)),
+                meterRegistry);
+
+        coalescer.get(1L, id -> DEVICE);
+        coalescer.get(1L, id -> DEVICE);
+        assertThat(count("issued")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(1);
+
+        coalescer.onChange(DeviceChangeEvent.deleted(1L));
+        coalescer.get(1L, id -> DEVICE);
+        assertThat(count("issued")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotKeepFailedQueries() {
+        var coalescer = new DeviceReadCoalescer(new ReadCoalescingProperties(true, Duration.ofMinutes(1)),
+                meterRegistry);
+
+        assertThatThrownBy(() -> coalescer.get(1L, id -> {
+            throw new EntityNotFoundException();
+        })).isInstanceOf(EntityNotFoundException.class);
+        assertThat(coalescer.get(1L, id -> DEVICE)).isEqualTo(DEVICE);
+        assertThat(count("issued")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReleaseWaitingReadsWhenQueryFailsWithError() throws Exception {
+        var coalescer = new DeviceReadCoalescer(new ReadCoalescingProperties(true, Duration.ofMinutes(1)),
+                meterRegistry);
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var leader = executor.submit(() -> coalescer.get(1L, id -> {
+                await(release);
+                throw new StackOverflowError();
+            }));
+            while (count("issued") < 1) {
+                Thread.sleep(10);
+            }
+            var follower = executor.submit(() -> coalescer.get(1L, id -> DEVICE));
+            while (count("coalesced") < 1) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        }
+
+        assertThat(coalescer.get(1L, id -> DEVICE)).isEqualTo(DEVICE);
+        assertThat(count("issued")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotShareQueryWithReadsPinnedToPrimary() throws Exception {
+        var coalescer = new DeviceReadCoalescer(new ReadCoalescingProperties(true, Duration.ofMinutes(1)),
+                meterRegistry);
+        var release = new CountDownLatch(1);
+        var pinnedDevice = new DeviceResponse(1L, "name1", "brand1", DeviceState.IN_USE, 1L);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var unpinned = executor.submit(() -> coalescer.get(1L, id -> {
+                await(release);
+                return DEVICE;
+            }));
+            while (count("issued") < 1) {
+                Thread.sleep(10);
+            }
+            var pinned = executor.submit(() -> {
+                ReadReplicaDataSource.pinToPrimary();
+                try {
+                    return coalescer.get(1L, id -> pinnedDevice);
+                } finally {
+                    ReadReplicaDataSource.unpin();
+                }
+            });
+
+            assertThat(pinned.get(5, TimeUnit.SECONDS)).isEqualTo(pinnedDevice);
+            release.countDown();
+            assertThat(unpinned.get()).isEqualTo(DEVICE);
+        }
+
+        assertThat(count("issued")).isEqualTo(2);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("devices.get.queries", "outcome", outcome).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
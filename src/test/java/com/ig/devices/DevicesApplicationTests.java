@@ -1,24 +1,50 @@
 package com.ig.devices;
 
+import com.ig.devices.config.CacheConfig;
+import com.ig.devices.dto.DeviceBatchResponse;
 import com.ig.devices.dto.DeviceCreateOrUpdateRequest;
+import com.ig.devices.dto.DeviceHeartbeatRequest;
+import com.ig.devices.dto.DeviceLookupRequest;
+import com.ig.devices.dto.DeviceLookupResponse;
 import com.ig.devices.dto.DeviceResponse;
+import com.ig.devices.dto.DeviceSearchParams;
+import com.ig.devices.dto.DeviceStateTransitionRequest;
+import com.ig.devices.dto.DeviceStateTransitionResponse;
+import com.ig.devices.dto.DeviceStatsResponse;
+import com.ig.devices.dto.DeviceSyncResponse;
 import com.ig.devices.dto.DevicesPageResponse;
 import com.ig.devices.dto.ErrorResponse;
 import com.ig.devices.model.DeviceState;
+import com.ig.devices.service.DeviceHeartbeatBuffer;
+import com.ig.devices.service.DeviceStatsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 
 import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 @Import(TestcontainersConfiguration.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -27,6 +53,18 @@ class DevicesApplicationTests {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DeviceHeartbeatBuffer heartbeatBuffer;
+
+    @Autowired
+    private DeviceStatsService statsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     @BeforeEach
     void cleanDb(@Autowired DataSource ds) throws Exception {
         try (var conn = ds.getConnection(); var stmt = conn.createStatement()) {
@@ -57,6 +95,209 @@ class DevicesApplicationTests {
         assertThat(fetched.state()).isEqualTo(created.state());
     }
 
+    @Test
+    void shouldCreateDevicesInBatch() {
+        var requests = List.of(
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                new DeviceCreateOrUpdateRequest("", "brand2", DeviceState.AVAILABLE),
+                new DeviceCreateOrUpdateRequest("name3", "brand3", DeviceState.IN_USE));
+        var batchResponse = restTemplate.postForEntity("/devices/batch", requests, DeviceBatchResponse.class);
+
+        assertThat(batchResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var batch = batchResponse.getBody();
+        assertThat(batch.created()).isEqualTo(2);
+        assertThat(batch.rejected()).isEqualTo(1);
+        assertThat(batch.results().get(1).errors()).containsExactly("name must not be blank");
+
+        var created = batch.results().get(2).device();
+        assertThat(created.name()).isEqualTo("name3");
+        var fetched = restTemplate.getForEntity("/devices/" + created.id(), DeviceResponse.class).getBody();
+        assertThat(fetched).isEqualTo(created);
+    }
+
+    @Test
+    void shouldLookupDevicesById() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand2", DeviceState.IN_USE),
+                DeviceResponse.class).getBody();
+        restTemplate.getForEntity("/devices/" + device1.id(), DeviceResponse.class);
+
+        var lookupResponse = restTemplate.postForEntity("/devices/lookup",
+                new DeviceLookupRequest(List.of(device2.id(), Long.MAX_VALUE, device1.id(), device2.id())),
+                DeviceLookupResponse.class);
+
+        assertThat(lookupResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(lookupResponse.getBody().devices()).containsExactly(device2, device1);
+        assertThat(lookupResponse.getBody().missingIds()).containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldTransitionDeviceStatesInBulk() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.IN_USE),
+                DeviceResponse.class).getBody();
+        var device3 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name3", "brand2", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var byIds = restTemplate.postForEntity("/devices/state-transitions",
+                new DeviceStateTransitionRequest(List.of(device1.id(), device2.id(), Long.MAX_VALUE), null,
+                        DeviceState.IN_USE),
+                DeviceStateTransitionResponse.class).getBody();
+        assertThat(byIds.affectedIds()).containsExactly(device1.id());
+        assertThat(byIds.unchangedIds()).containsExactly(device2.id());
+        assertThat(byIds.rejectedIds()).containsExactly(Long.MAX_VALUE);
+        var fetched = restTemplate.getForEntity("/devices/" + device1.id(), DeviceResponse.class).getBody();
+        assertThat(fetched.state()).isEqualTo(DeviceState.IN_USE);
+
+        var byFilter = restTemplate.postForEntity("/devices/state-transitions",
+                new DeviceStateTransitionRequest(null, new DeviceSearchParams("brand1", null), DeviceState.INACTIVE),
+                DeviceStateTransitionResponse.class).getBody();
+        assertThat(byFilter.affectedIds()).containsExactly(device1.id(), device2.id());
+        var untouched = restTemplate.getForEntity("/devices/" + device3.id(), DeviceResponse.class).getBody();
+        assertThat(untouched.state()).isEqualTo(DeviceState.AVAILABLE);
+    }
+
+    @Test
+    void shouldNotTransitionDevicesMovedOutOfFilterConcurrently() throws Exception {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        try (var conn = dataSource.getConnection(); var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE devices SET brand = 'brand2' WHERE id = " + device1.id());
+            }
+
+            var transition = executor.submit(() -> restTemplate.postForEntity("/devices/state-transitions",
+                    new DeviceStateTransitionRequest(null, new DeviceSearchParams("brand1", null), DeviceState.INACTIVE),
+                    DeviceStateTransitionResponse.class).getBody());
+            awaitLockWaiter();
+            conn.commit();
+
+            var result = transition.get(10, TimeUnit.SECONDS);
+            assertThat(result.affectedIds()).containsExactly(device2.id());
+        }
+        var moved = restTemplate.getForEntity("/devices/" + device1.id(), DeviceResponse.class).getBody();
+        assertThat(moved.state()).isEqualTo(DeviceState.AVAILABLE);
+    }
+
+    private void awaitLockWaiter() throws Exception {
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            for (var attempt = 0; attempt < 100; attempt++) {
+                try (var rs = stmt.executeQuery("SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'")) {
+                    rs.next();
+                    if (rs.getInt(1) > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(50);
+            }
+        }
+        throw new AssertionError("no statement waited for the row lock");
+    }
+
+    @Test
+    void shouldWriteReportedDeviceStateOnFlush() {
+        var device = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var reportResponse = restTemplate.postForEntity("/devices/" + device.id() + "/heartbeat",
+                new DeviceHeartbeatRequest(DeviceState.IN_USE), Void.class);
+        assertThat(reportResponse.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        heartbeatBuffer.flush();
+
+        var fetched = restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody();
+        assertThat(fetched.state()).isEqualTo(DeviceState.IN_USE);
+        assertThat(fetched.version()).isEqualTo(device.version() + 1);
+    }
+
+    @Test
+    void shouldEvictCachedDeviceChangedByAnotherInstance() throws Exception {
+        var device = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        assertThat(restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody().name())
+                .isEqualTo("name1");
+
+        // bypasses the application, like a write made by another instance
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("UPDATE devices SET name = 'name2', version = version + 1 WHERE id = " + device.id());
+        }
+
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        var fetched = restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody();
+        while (!fetched.name().equals("name2") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            fetched = restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody();
+        }
+        assertThat(fetched.name()).isEqualTo("name2");
+        assertThat(fetched.version()).isEqualTo(device.version() + 1);
+
+        // writes that keep the version are evicted as well
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("UPDATE devices SET name = 'name3' WHERE id = " + device.id());
+        }
+        deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        fetched = restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody();
+        while (!fetched.name().equals("name3") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            fetched = restTemplate.getForEntity("/devices/" + device.id(), DeviceResponse.class).getBody();
+        }
+        assertThat(fetched.name()).isEqualTo("name3");
+    }
+
+    @Test
+    void shouldKeepOwnWritesCached() throws Exception {
+        var device = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        restTemplate.put("/devices/" + device.id(), new DeviceCreateOrUpdateRequest("name2", "brand1", null));
+
+        // well past the batch window, so the notification of the update has been applied
+        Thread.sleep(500);
+        var cached = cacheManager.getCache(CacheConfig.DEVICES).get(device.id(), DeviceResponse.class);
+        assertThat(cached).isNotNull();
+        assertThat(cached.name()).isEqualTo("name2");
+        assertThat(cached.version()).isEqualTo(device.version() + 1);
+    }
+
+    @Test
+    void shouldNegotiateCbor() {
+        var cborHeaders = new HttpHeaders();
+        cborHeaders.setContentType(MediaType.APPLICATION_CBOR);
+        cborHeaders.setAccept(List.of(MediaType.APPLICATION_CBOR));
+
+        var createResponse = restTemplate.exchange("/devices", HttpMethod.POST,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE), cborHeaders),
+                DeviceResponse.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(createResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        var created = createResponse.getBody();
+        assertThat(created.name()).isEqualTo("name1");
+
+        var getResponse = restTemplate.exchange("/devices/" + created.id(), HttpMethod.GET,
+                new HttpEntity<>(cborHeaders), DeviceResponse.class);
+        assertThat(getResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(getResponse.getBody()).isEqualTo(created);
+
+        var searchResponse = restTemplate.exchange("/devices", HttpMethod.GET,
+                new HttpEntity<>(cborHeaders), DevicesPageResponse.class);
+        assertThat(searchResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(searchResponse.getBody().content()).containsExactly(created);
+    }
+
     @Test
     void shouldValidateCreateDeviceFields() {
         var createRequest = new DeviceCreateOrUpdateRequest("", null, null);
@@ -183,6 +424,71 @@ class DevicesApplicationTests {
         ));
     }
 
+    @Test
+    void shouldSupportConditionalRequests() {
+        var createResponse = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE), DeviceResponse.class);
+        var id = createResponse.getBody().id();
+        var etag = createResponse.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"0\"");
+
+        var notModifiedHeaders = new HttpHeaders();
+        notModifiedHeaders.setIfNoneMatch(etag);
+        var notModifiedResponse = restTemplate.exchange("/devices/" + id, HttpMethod.GET,
+                new HttpEntity<>(notModifiedHeaders), DeviceResponse.class);
+        assertThat(notModifiedResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        var updateHeaders = new HttpHeaders();
+        updateHeaders.setIfMatch(etag);
+        var updateResponse = restTemplate.exchange("/devices/" + id, HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name2", null, null), updateHeaders),
+                DeviceResponse.class);
+        assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(updateResponse.getHeaders().getETag()).isEqualTo("\"1\"");
+
+        var staleUpdateResponse = restTemplate.exchange("/devices/" + id, HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name3", null, null), updateHeaders),
+                ErrorResponse.class);
+        assertThat(staleUpdateResponse.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        var weakHeaders = new HttpHeaders();
+        weakHeaders.setIfMatch("W/\"1\"");
+        var weakUpdateResponse = restTemplate.exchange("/devices/" + id, HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name3", null, null), weakHeaders),
+                ErrorResponse.class);
+        assertThat(weakUpdateResponse.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        var listHeaders = new HttpHeaders();
+        listHeaders.setIfMatch(List.of("\"0\"", "W/\"2\"", "\"1\""));
+        var listUpdateResponse = restTemplate.exchange("/devices/" + id, HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name2", null, null), listHeaders),
+                DeviceResponse.class);
+        assertThat(listUpdateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(listUpdateResponse.getHeaders().getETag()).isEqualTo("\"2\"");
+
+        var modifiedResponse = restTemplate.exchange("/devices/" + id, HttpMethod.GET,
+                new HttpEntity<>(notModifiedHeaders), DeviceResponse.class);
+        assertThat(modifiedResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(modifiedResponse.getBody().name()).isEqualTo("name2");
+    }
+
+    @Test
+    void shouldNotFindMissingDeviceOnUpdateAndDelete() {
+        var updateResponse = restTemplate.exchange(
+                "/devices/" + Long.MAX_VALUE,
+                HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest("name1", null, null)),
+                Void.class);
+        assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        var deleteResponse = restTemplate.exchange(
+                "/devices/" + Long.MAX_VALUE,
+                HttpMethod.DELETE,
+                HttpEntity.EMPTY,
+                Void.class);
+        assertThat(deleteResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     @Test
     void shouldSearchDevices() {
         var device1 = restTemplate.postForEntity("/devices",
@@ -234,4 +540,247 @@ class DevicesApplicationTests {
         assertThat(devicesByBrandAndState).hasSameElementsAs(List.of(device1));
     }
 
+    @Test
+    void shouldSearchDevicesWithoutTotal() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device3 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name3", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var firstSlice = restTemplate.getForEntity("/devices?withTotal=false&size=2&sort=id,asc",
+                DevicesPageResponse.class).getBody();
+        assertThat(firstSlice.content()).containsExactly(device1, device2);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(firstSlice.totalElements()).isNull();
+        assertThat(firstSlice.totalPages()).isNull();
+
+        var lastSlice = restTemplate.getForEntity("/devices?withTotal=false&size=2&page=1&sort=id,asc",
+                DevicesPageResponse.class).getBody();
+        assertThat(lastSlice.content()).containsExactly(device3);
+        assertThat(lastSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    void shouldSearchDevicesByText() {
+        var pixel = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("Pixel 8", "Google", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var phone = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("iPhone 15", "Apple", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var tablet = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("Pixel Tablet", "Google", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var byPrefix = restTemplate.getForEntity("/devices?name=pix&sort=id,asc", DevicesPageResponse.class).getBody();
+        assertThat(byPrefix.content()).containsExactly(pixel, tablet);
+
+        var byNameSubstring = restTemplate.getForEntity("/devices?q=PHONE", DevicesPageResponse.class).getBody();
+        assertThat(byNameSubstring.content()).containsExactly(phone);
+
+        var byBrandSubstring = restTemplate.getForEntity("/devices?q=oog&sort=id,asc",
+                DevicesPageResponse.class).getBody();
+        assertThat(byBrandSubstring.content()).containsExactly(pixel, tablet);
+
+        var rankedBySimilarity = restTemplate.getForEntity("/devices?q=pixel", DevicesPageResponse.class).getBody();
+        assertThat(rankedBySimilarity.content()).containsExactly(pixel, tablet);
+        assertThat(rankedBySimilarity.totalElements()).isEqualTo(2);
+
+        var noWildcards = restTemplate.getForEntity("/devices?q=%25", DevicesPageResponse.class).getBody();
+        assertThat(noWildcards.content()).isEmpty();
+    }
+
+    @Test
+    void shouldMaintainDeviceStats() {
+        restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE), DeviceResponse.class);
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device3 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name3", "brand2", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        restTemplate.exchange("/devices/" + device2.id(), HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest(null, null, DeviceState.IN_USE)), DeviceResponse.class);
+        restTemplate.exchange("/devices/" + device3.id(), HttpMethod.DELETE, HttpEntity.EMPTY, Void.class);
+
+        var stats = restTemplate.getForEntity("/devices/stats", DeviceStatsResponse.class).getBody();
+        assertThat(stats.total()).isEqualTo(2);
+        assertThat(stats.byState()).isEqualTo(Map.of(DeviceState.AVAILABLE, 1L, DeviceState.IN_USE, 1L));
+        assertThat(stats.byBrand()).isEqualTo(Map.of("brand1", 2L));
+
+        statsService.fold();
+        assertThat(restTemplate.getForEntity("/devices/stats", DeviceStatsResponse.class).getBody()).isEqualTo(stats);
+    }
+
+    @Test
+    void shouldReconcileDeviceStatsAfterWritesBypassingTriggers() throws Exception {
+        var device = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("SET session_replication_role = replica");
+            stmt.execute("UPDATE devices SET state = 'INACTIVE' WHERE id = " + device.id());
+            stmt.execute("RESET session_replication_role");
+            stmt.execute("UPDATE device_counts_reconciled SET reconciled_at = now() - INTERVAL '1 day'");
+        }
+
+        statsService.reconcile();
+        statsService.fold();
+
+        var stats = restTemplate.getForEntity("/devices/stats", DeviceStatsResponse.class).getBody();
+        assertThat(stats.total()).isEqualTo(1);
+        assertThat(stats.byState()).isEqualTo(Map.of(DeviceState.INACTIVE, 1L));
+    }
+
+    @Test
+    void shouldExportDevices() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name, \"2\"", "brand2", DeviceState.IN_USE),
+                DeviceResponse.class).getBody();
+
+        var ndjsonResponse = restTemplate.getForEntity("/devices/export", String.class);
+        assertThat(ndjsonResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(ndjsonResponse.getBody().split("\n")).hasSize(2);
+
+        var csvResponse = restTemplate.getForEntity("/devices/export?format=CSV", String.class);
+        assertThat(csvResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(csvResponse.getBody().split("\n")).containsExactly(
+                "id,name,brand,state",
+                device1.id() + ",name1,brand1,AVAILABLE",
+                device2.id() + ",\"name, \"\"2\"\"\",brand2,IN_USE");
+    }
+
+    @Test
+    void shouldScrollDevices() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand2", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device3 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name3", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var firstPage = restTemplate.getForEntity("/devices/scroll?size=2", DevicesPageResponse.class).getBody();
+        assertThat(firstPage.content()).containsExactly(device1, device2);
+        assertThat(firstPage.totalElements()).isNull();
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        var secondPage = restTemplate.getForEntity("/devices/scroll?size=2&after=" + firstPage.nextCursor(),
+                DevicesPageResponse.class).getBody();
+        assertThat(secondPage.content()).containsExactly(device3);
+        assertThat(secondPage.nextCursor()).isNull();
+
+        var byBrand = restTemplate.getForEntity("/devices/scroll?brand=brand1", DevicesPageResponse.class).getBody();
+        assertThat(byBrand.content()).containsExactly(device1, device3);
+
+        var invalidCursor = restTemplate.getForEntity("/devices/scroll?after=invalid", ErrorResponse.class);
+        assertThat(invalidCursor.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldSyncChangesSinceWatermark() {
+        var device1 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device2 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name2", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+        var device3 = restTemplate.postForEntity("/devices",
+                new DeviceCreateOrUpdateRequest("name3", "brand1", DeviceState.AVAILABLE),
+                DeviceResponse.class).getBody();
+
+        var firstPage = restTemplate.getForEntity("/devices/sync?size=2", DeviceSyncResponse.class).getBody();
+        assertThat(firstPage.changed()).containsExactly(device1, device2);
+        assertThat(firstPage.hasMore()).isTrue();
+        var fullSync = restTemplate.getForEntity("/devices/sync?size=2&since=" + firstPage.watermark(),
+                DeviceSyncResponse.class).getBody();
+        assertThat(fullSync.changed()).containsExactly(device3);
+        assertThat(fullSync.hasMore()).isFalse();
+
+        var updated = restTemplate.exchange("/devices/" + device1.id(), HttpMethod.PATCH,
+                new HttpEntity<>(new DeviceCreateOrUpdateRequest(null, null, DeviceState.INACTIVE)),
+                DeviceResponse.class).getBody();
+        restTemplate.delete("/devices/" + device2.id());
+
+        var delta = restTemplate.getForEntity("/devices/sync?since=" + fullSync.watermark(),
+                DeviceSyncResponse.class).getBody();
+        assertThat(delta.changed()).containsExactly(updated);
+        assertThat(delta.deletedIds()).containsExactly(device2.id());
+
+        var unchanged = restTemplate.getForEntity("/devices/sync?since=" + delta.watermark(),
+                DeviceSyncResponse.class).getBody();
+        assertThat(unchanged.changed()).isEmpty();
+        assertThat(unchanged.deletedIds()).isEmpty();
+
+        var invalid = restTemplate.getForEntity("/devices/sync?since=invalid", ErrorResponse.class);
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldStreamAndResumeDeviceChanges() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            var client = HttpClient.newHttpClient();
+            var changes = URI.create(restTemplate.getRootUri() + "/devices/changes");
+
+            String createdEventId;
+            Long deviceId;
+            try (var lines = client.send(HttpRequest.newBuilder(changes).build(),
+                    HttpResponse.BodyHandlers.ofLines()).body()) {
+                var device = restTemplate.postForEntity("/devices",
+                        new DeviceCreateOrUpdateRequest("name1", "brand1", DeviceState.AVAILABLE),
+                        DeviceResponse.class).getBody();
+                deviceId = device.id();
+
+                var created = nextEvent(lines.iterator());
+                assertThat(created.get("event")).isEqualTo("CREATED");
+                assertThat(created.get("data")).contains("\"id\":" + deviceId);
+                createdEventId = created.get("id");
+            }
+
+            restTemplate.exchange("/devices/" + deviceId, HttpMethod.PATCH,
+                    new HttpEntity<>(new DeviceCreateOrUpdateRequest(null, null, DeviceState.IN_USE)),
+                    DeviceResponse.class);
+
+            var resume = HttpRequest.newBuilder(changes).header("Last-Event-ID", createdEventId).build();
+            try (var lines = client.send(resume, HttpResponse.BodyHandlers.ofLines()).body()) {
+                var updated = nextEvent(lines.iterator());
+                assertThat(updated.get("event")).isEqualTo("UPDATED");
+                assertThat(updated.get("id")).isNotEqualTo(createdEventId);
+                assertThat(updated.get("data")).contains("\"state\":\"IN_USE\"");
+            }
+
+            // an id issued by another instance, or before a restart, cannot be resumed from
+            var foreign = HttpRequest.newBuilder(changes).header("Last-Event-ID", "otherepoch-1").build();
+            try (var lines = client.send(foreign, HttpResponse.BodyHandlers.ofLines()).body()) {
+                assertThat(nextEvent(lines.iterator()).get("event")).isEqualTo("reset");
+            }
+        });
+    }
+
+    private static Map<String, String> nextEvent(Iterator<String> lines) {
+        var fields = new HashMap<String, String>();
+        while (lines.hasNext()) {
+            var line = lines.next();
+            if (line.isEmpty() && fields.containsKey("data")) {
+                return fields;
+            }
+            var separator = line.indexOf(':');
+            if (separator > 0) {
+                fields.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        throw new AssertionError("change stream ended");
+    }
+
 }
@@ -0,0 +1,207 @@
+package com.ig.devices;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test harness, run with {@code ./gradlew loadTest}. Seeds the database and drives a mixed
+ * read/write/search workload from many concurrent clients, then reports throughput and latency
+ * percentiles per endpoint. Tunable through {@code -DloadTest.*} system properties.
+ */
+@Tag("load")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class DevicesLoadTest {
+
+    private static final int DEVICES = Integer.getInteger("loadTest.devices", 1_000_000);
+    private static final int CLIENTS = Integer.getInteger("loadTest.clients", 64);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadTest.warmup", "PT10S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadTest.duration", "PT60S"));
+    private static final String REPORT_DIR = System.getProperty("loadTest.reportDir", "build/reports/load-test");
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private long minId;
+    private long maxId;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        seed();
+
+        System.out.printf("Warming up for %s with %d clients%n", WARMUP, CLIENTS);
+        run(WARMUP, new Stats());
+
+        System.out.printf("Measuring for %s with %d clients%n", DURATION, CLIENTS);
+        var stats = new Stats();
+        run(DURATION, stats);
+
+        var report = stats.report(DURATION);
+        System.out.println(report);
+        Files.createDirectories(Path.of(REPORT_DIR));
+        Files.writeString(Path.of(REPORT_DIR, "summary.txt"), report);
+    }
+
+    private void seed() throws Exception {
+        System.out.printf("Seeding %d devices%n", DEVICES);
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE devices RESTART IDENTITY CASCADE");
+            // skips the row triggers, so the app does not have to work through a notification per seeded device
+            stmt.execute("SET session_replication_role = replica");
+            stmt.execute("""
+                    INSERT INTO devices (id, name, brand, state, created_at, updated_at)
+                    SELECT nextval('devices_seq'), 'name' || i, 'brand' || (i % 1000),
+                           (ARRAY['AVAILABLE', 'IN_USE', 'INACTIVE'])[i % 3 + 1], now(), now()
+                    FROM generate_series(1, %d) AS i
+                    """.formatted(DEVICES));
+            stmt.execute("RESET session_replication_role");
+            // what the skipped count triggers would have recorded
+            stmt.execute("""
+                    INSERT INTO device_count_deltas (brand, state, delta)
+                    SELECT COALESCE(brand, ''), COALESCE(state, ''), count(*) FROM devices GROUP BY 1, 2
+                    """);
+            stmt.execute("ANALYZE devices");
+            try (var rs = stmt.executeQuery("SELECT min(id), max(id) FROM devices")) {
+                rs.next();
+                minId = rs.getLong(1);
+                maxId = rs.getLong(2);
+            }
+        }
+    }
+
+    private void run(Duration duration, Stats stats) throws InterruptedException {
+        var deadline = System.nanoTime() + duration.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < CLIENTS; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        execute(nextRequest(), stats);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private Operation nextRequest() {
+        var random = ThreadLocalRandom.current();
+        var id = random.nextLong(minId, maxId + 1);
+        var brand = "brand" + random.nextInt(1000);
+        var roll = random.nextInt(100);
+        if (roll < 50) {
+            return new Operation("GET /devices/{id}", get("/devices/" + id));
+        }
+        if (roll < 65) {
+            return new Operation("GET /devices?brand", get("/devices?withTotal=false&size=20&sort=id&brand=" + brand));
+        }
+        if (roll < 75) {
+            return new Operation("GET /devices/scroll", get("/devices/scroll?size=50&state=AVAILABLE"));
+        }
+        if (roll < 95) {
+            var state = random.nextBoolean() ? "AVAILABLE" : "INACTIVE";
+            return new Operation("PATCH /devices/{id}", json("/devices/" + id, "PATCH",
+                    "{\"state\":\"" + state + "\"}"));
+        }
+        return new Operation("POST /devices", json("/devices", "POST",
+                "{\"name\":\"load\",\"brand\":\"" + brand + "\",\"state\":\"AVAILABLE\"}"));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void execute(Operation operation, Stats stats) {
+        var start = System.nanoTime();
+        var failed = false;
+        try {
+            var response = client.send(operation.request(), HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (Exception ex) {
+            failed = true;
+        }
+        stats.record(operation.name(), System.nanoTime() - start, failed);
+    }
+
+    private record Operation(String name, HttpRequest request) {
+    }
+
+    private static class Stats {
+
+        private final Map<String, Histogram> latencies = new LinkedHashMap<>();
+        private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+
+        void record(String operation, long nanos, boolean failed) {
+            histogram(operation).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+            if (failed) {
+                errorCounter(operation).increment();
+            }
+        }
+
+        private synchronized Histogram histogram(String operation) {
+            return latencies.computeIfAbsent(operation, key -> new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+        }
+
+        private synchronized LongAdder errorCounter(String operation) {
+            return errors.computeIfAbsent(operation, key -> new LongAdder());
+        }
+
+        synchronized String report(Duration duration) {
+            var report = new StringBuilder();
+            report.append(String.format("%-22s %10s %10s %8s %8s %8s %8s %8s %8s%n",
+                    "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            latencies.forEach((operation, histogram) -> report.append(String.format(
+                    "%-22s %10d %10.1f %8d %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    operation,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) duration.toSeconds(),
+                    errors.containsKey(operation) ? errors.get(operation).sum() : 0,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0)));
+            return report.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.ig.devices;
+
+import com.ig.devices.config.ReadReplicaDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaDataSourceTests {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+    private ReadReplicaDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = dataSourceMock();
+        replica1 = dataSourceMock();
+        replica2 = dataSourceMock();
+        dataSource = new ReadReplicaDataSource(primary, List.of(replica1, replica2));
+        clearInvocations(primary);
+    }
+
+    @AfterEach
+    void unpin() {
+        ReadReplicaDataSource.unpin();
+    }
+
+    @Test
+    void shouldSendReadOnlyConnectionsToReplicasRoundRobin() throws Exception {
+        useConnection(true);
+        useConnection(true);
+        useConnection(true);
+
+        verify(replica1, times(2)).getConnection();
+        verify(replica2, times(1)).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldSendWritesAndPinnedReadsToPrimary() throws Exception {
+        useConnection(false);
+        ReadReplicaDataSource.pinToPrimary();
+        useConnection(true);
+
+        verify(primary, times(2)).getConnection();
+        verify(replica1, never()).getConnection();
+        verify(replica2, never()).getConnection();
+    }
+
+    @Test
+    void shouldCarryPinOverToWrappedTasks() throws Exception {
+        ReadReplicaDataSource.pinToPrimary();
+        var task = ReadReplicaDataSource.withCurrentPin(() -> {
+            try {
+                useConnection(true);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        ReadReplicaDataSource.unpin();
+
+        var thread = Thread.ofVirtual().start(task);
+        thread.join();
+
+        verify(primary).getConnection();
+        verify(replica1, never()).getConnection();
+        verify(replica2, never()).getConnection();
+    }
+
+    private void useConnection(boolean readOnly) throws Exception {
+        try (var connection = dataSource.getConnection()) {
+            connection.setReadOnly(readOnly);
+            connection.createStatement();
+        }
+    }
+
+    private static DataSource dataSourceMock() throws Exception {
+        var dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> {
+            var connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+            return connection;
+        });
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.ig.devices;
+
+import com.ig.devices.config.ReadReplicaDataSource;
+import com.ig.devices.config.ReadYourWritesFilter;
+import com.ig.devices.dto.DeviceChangeEvent;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTests {
+
+    private ReadYourWritesFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ReadYourWritesFilter(Duration.ofSeconds(5), false);
+    }
+
+    @Test
+    void shouldSetPinCookieOnWriteAndPinRequestsPresentingIt() throws Exception {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request("10.0.0.1"), response, (req, res) -> filter.onChange(DeviceChangeEvent.deleted(1L)));
+
+        var cookie = response.getCookie(ReadYourWritesFilter.PIN_COOKIE);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+
+        var read = request("10.0.0.2");
+        read.setCookies(new Cookie(ReadYourWritesFilter.PIN_COOKIE, cookie.getValue()));
+        assertThat(pinnedDuring(read)).isTrue();
+    }
+
+    @Test
+    void shouldPinByClientId() throws Exception {
+        var write = request("10.0.0.1");
+        write.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "client1");
+        filter.doFilter(write, new MockHttpServletResponse(), (req, res) -> filter.onChange(DeviceChangeEvent.deleted(1L)));
+
+        var sameClient = request("10.0.0.2");
+        sameClient.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "client1");
+        var otherClient = request("10.0.0.1");
+        otherClient.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "client2");
+        assertThat(pinnedDuring(sameClient)).isTrue();
+        assertThat(pinnedDuring(otherClient)).isFalse();
+    }
+
+    @Test
+    void shouldNotPinOtherClientsBehindTheSameAddress() throws Exception {
+        filter.doFilter(request("10.0.0.1"), new MockHttpServletResponse(),
+                (req, res) -> filter.onChange(DeviceChangeEvent.deleted(1L)));
+
+        assertThat(pinnedDuring(request("10.0.0.1"))).isFalse();
+    }
+
+    @Test
+    void shouldPinByRemoteAddressWhenEnabled() throws Exception {
+        filter = new ReadYourWritesFilter(Duration.ofSeconds(5), true);
+        filter.doFilter(request("10.0.0.1"), new MockHttpServletResponse(),
+                (req, res) -> filter.onChange(DeviceChangeEvent.deleted(1L)));
+
+        assertThat(pinnedDuring(request("10.0.0.1"))).isTrue();
+        assertThat(pinnedDuring(request("10.0.0.2"))).isFalse();
+    }
+
+    private boolean pinnedDuring(MockHttpServletRequest request) throws Exception {
+        var pinned = new boolean[1];
+        FilterChain chain = (req, res) -> pinned[0] = ReadReplicaDataSource.isPinnedToPrimary();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(ReadReplicaDataSource.isPinnedToPrimary()).isFalse();
+        return pinned[0];
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress) {
+        var request = new MockHttpServletRequest("GET", "/devices/1");
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.ig.devices;
+
+import com.ig.devices.config.StatementCountingFilter;
+import com.ig.devices.config.StatementCountingListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCountingFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatementCountingListener listener = new StatementCountingListener();
+    private final StatementCountingFilter filter = new StatementCountingFilter(meterRegistry, 100);
+
+    @Test
+    void shouldRecordStatementsOfRequest() throws Exception {
+        var request = request("/devices/{id}");
+        FilterChain chain = (req, res) -> {
+            execute();
+            execute();
+        };
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        execute();
+
+        var summary = meterRegistry.get("devices.http.statements").tag("uri", "/devices/{id}").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRecordStatementsOfAsyncPartOnCompletion() throws Exception {
+        var request = request("/devices/export");
+        request.setAsyncSupported(true);
+        var asyncTask = new Runnable[1];
+        FilterChain chain = (req, res) -> {
+            execute();
+            req.startAsync();
+            asyncTask[0] = StatementCountingListener.withCurrentCount(() -> {
+                execute();
+                execute();
+            });
+        };
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(meterRegistry.find("devices.http.statements").summary()).isNull();
+
+        var thread = Thread.ofVirtual().start(asyncTask[0]);
+        thread.join();
+        request.getAsyncContext().complete();
+
+        var summary = meterRegistry.get("devices.http.statements").tag("uri", "/devices/export").summary();
+        assertThat(summary.totalAmount()).isEqualTo(3);
+    }
+
+    private void execute() {
+        listener.beforeQuery(new ExecutionInfo(), List.of(new QueryInfo("SELECT 1")));
+    }
+
+    private static MockHttpServletRequest request(String pattern) {
+        var request = new MockHttpServletRequest("GET", "/devices");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+
+}